@@ -0,0 +1,70 @@
+package IR.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// sequential reader for files produced by BinaryEncoder
+public class BinaryDecoder {
+  ByteBuffer in;
+  String[] symbols;
+
+  public BinaryDecoder(ByteBuffer in, int magic) throws IOException {
+    this.in = in;
+    if (in.remaining() < 4 || in.getInt() != magic) {
+      throw new IOException("Not a binary IR file of the expected kind");
+    }
+
+    symbols = new String[readVarInt()];
+    byte[] scratch = new byte[64];
+    for (int i = 0; i < symbols.length; i++) {
+      int length = readVarInt();
+      if (scratch.length < length) scratch = new byte[length];
+      in.get(scratch, 0, length);
+      symbols[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    int body_size = readVarInt();
+    if (in.remaining() < body_size) {
+      throw new IOException("Truncated binary IR file");
+    }
+  }
+
+  public static ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  public int symbolCount() {
+    return symbols.length;
+  }
+
+  public int readVarInt() {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  public int readSignedVarInt() {
+    int raw = readVarInt();
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+
+  public int readSymbolId() {
+    return readVarInt();
+  }
+
+  public String symbol(int id) {
+    return symbols[id];
+  }
+}
@@ -0,0 +1,67 @@
+package IR.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// body of a binary IR file: varint encoded values plus an interned symbol table
+// layout: magic (4 bytes) | symbol count | symbols (length + UTF-8 bytes) | body length | body
+public class BinaryEncoder {
+  HashMap<String, Integer> symbol_ids = new HashMap<>();
+  List<String> symbols = new ArrayList<>();
+  byte[] body = new byte[4096];
+  int body_size = 0;
+
+  public void writeByte(int b) {
+    if (body_size == body.length) {
+      body = Arrays.copyOf(body, body.length * 2);
+    }
+    body[body_size++] = (byte) b;
+  }
+
+  // unsigned LEB128
+  public void writeVarInt(int value) {
+    while ((value & ~0x7f) != 0) {
+      writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  // zigzag so that small negative numbers stay short
+  public void writeSignedVarInt(int value) {
+    writeVarInt((value << 1) ^ (value >> 31));
+  }
+
+  public void writeSymbol(String symbol) {
+    Integer id = symbol_ids.get(symbol);
+    if (id == null) {
+      id = symbols.size();
+      symbol_ids.put(symbol, id);
+      symbols.add(symbol);
+    }
+    writeVarInt(id);
+  }
+
+  public void writeTo(OutputStream out, int magic) throws IOException {
+    BinaryEncoder header = new BinaryEncoder();
+    header.writeByte(magic >>> 24);
+    header.writeByte(magic >>> 16);
+    header.writeByte(magic >>> 8);
+    header.writeByte(magic);
+    header.writeVarInt(symbols.size());
+    for (String symbol : symbols) {
+      byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+      header.writeVarInt(bytes.length);
+      for (byte b : bytes) header.writeByte(b);
+    }
+    header.writeVarInt(body_size);
+
+    out.write(header.body, 0, header.body_size);
+    out.write(body, 0, body_size);
+  }
+}
@@ -0,0 +1,132 @@
+package IR.binary;
+
+import IR.token.FunctionName;
+import IR.token.Identifier;
+import IR.token.Label;
+import sparrow.*;
+import sparrow.visitor.SetParents;
+
+import static sparrow.visitor.BinaryWriterVisitor.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+// rebuilds a sparrow Program written by sparrow.visitor.BinaryWriterVisitor
+public class SparrowBinaryReader {
+
+   BinaryDecoder in;
+
+   // one token object per interned symbol
+   Identifier[] identifiers;
+   Label[] labels;
+   FunctionName[] functionNames;
+
+   public SparrowBinaryReader(ByteBuffer buffer) throws IOException {
+      this.in = new BinaryDecoder(buffer, MAGIC);
+      int count = in.symbolCount();
+      this.identifiers = new Identifier[count];
+      this.labels = new Label[count];
+      this.functionNames = new FunctionName[count];
+   }
+
+   public static sparrow.Program read(Path path) throws IOException {
+      return new SparrowBinaryReader(BinaryDecoder.map(path)).readProgram();
+   }
+
+   public sparrow.Program readProgram() throws IOException {
+      int count = in.readVarInt();
+      ArrayList<FunctionDecl> funList = new ArrayList<FunctionDecl>(count);
+      for (int i = 0; i < count; i++) {
+         funList.add(readFunction());
+      }
+      sparrow.Program program = new sparrow.Program(funList);
+      program.accept(new SetParents());
+      return program;
+   }
+
+   FunctionDecl readFunction() throws IOException {
+      FunctionName name = functionName();
+      int paramCount = in.readVarInt();
+      ArrayList<Identifier> formalParameters = new ArrayList<Identifier>(paramCount);
+      for (int i = 0; i < paramCount; i++) {
+         formalParameters.add(identifier());
+      }
+
+      int instrCount = in.readVarInt();
+      ArrayList<Instruction> instrList = new ArrayList<Instruction>(instrCount);
+      for (int i = 0; i < instrCount; i++) {
+         instrList.add(readInstruction());
+      }
+      sparrow.Block block = new sparrow.Block(instrList, identifier());
+
+      return new FunctionDecl(name, formalParameters, block);
+   }
+
+   Instruction readInstruction() throws IOException {
+      int opcode = in.readVarInt();
+      switch (opcode) {
+         case OP_LABEL:
+            return new LabelInstr(label());
+         case OP_MOVE_ID_INTEGER:
+            return new Move_Id_Integer(identifier(), in.readSignedVarInt());
+         case OP_MOVE_ID_FUNCNAME:
+            return new Move_Id_FuncName(identifier(), functionName());
+         case OP_ADD:
+            return new sparrow.Add(identifier(), identifier(), identifier());
+         case OP_SUBTRACT:
+            return new sparrow.Subtract(identifier(), identifier(), identifier());
+         case OP_MULTIPLY:
+            return new sparrow.Multiply(identifier(), identifier(), identifier());
+         case OP_LESSTHAN:
+            return new sparrow.LessThan(identifier(), identifier(), identifier());
+         case OP_LOAD:
+            return new sparrow.Load(identifier(), identifier(), in.readSignedVarInt());
+         case OP_STORE:
+            return new sparrow.Store(identifier(), in.readSignedVarInt(), identifier());
+         case OP_MOVE_ID_ID:
+            return new Move_Id_Id(identifier(), identifier());
+         case OP_ALLOC:
+            return new sparrow.Alloc(identifier(), identifier());
+         case OP_PRINT:
+            return new sparrow.Print(identifier());
+         case OP_ERROR:
+            return new sparrow.ErrorMessage(in.symbol(in.readSymbolId()));
+         case OP_GOTO:
+            return new sparrow.Goto(label());
+         case OP_IFGOTO:
+            return new sparrow.IfGoto(identifier(), label());
+         case OP_CALL: {
+            Identifier lhs = identifier();
+            Identifier callee = identifier();
+            int argCount = in.readVarInt();
+            ArrayList<Identifier> args = new ArrayList<Identifier>(argCount);
+            for (int i = 0; i < argCount; i++) {
+               args.add(identifier());
+            }
+            return new sparrow.Call(lhs, callee, args);
+         }
+         default:
+            throw new IOException("Unknown sparrow opcode " + opcode);
+      }
+   }
+
+   Identifier identifier() {
+      int id = in.readSymbolId();
+      if (identifiers[id] == null) identifiers[id] = new Identifier(in.symbol(id));
+      return identifiers[id];
+   }
+
+   Label label() {
+      int id = in.readSymbolId();
+      if (labels[id] == null) labels[id] = new Label(in.symbol(id));
+      return labels[id];
+   }
+
+   FunctionName functionName() {
+      int id = in.readSymbolId();
+      if (functionNames[id] == null) functionNames[id] = new FunctionName(in.symbol(id));
+      return functionNames[id];
+   }
+}
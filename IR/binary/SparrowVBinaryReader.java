@@ -0,0 +1,146 @@
+package IR.binary;
+
+import IR.token.FunctionName;
+import IR.token.Identifier;
+import IR.token.Label;
+import IR.token.Register;
+import sparrowv.*;
+import sparrowv.visitor.SetParents;
+
+import static sparrowv.Opcodes.*;
+import static sparrowv.visitor.BinaryWriterVisitor.MAGIC;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+// rebuilds a sparrowv Program written by sparrowv.visitor.BinaryWriterVisitor
+public class SparrowVBinaryReader {
+
+   BinaryDecoder in;
+
+   // one token object per interned symbol
+   Register[] registers;
+   Identifier[] identifiers;
+   Label[] labels;
+   FunctionName[] functionNames;
+
+   public SparrowVBinaryReader(ByteBuffer buffer) throws IOException {
+      this.in = new BinaryDecoder(buffer, MAGIC);
+      int count = in.symbolCount();
+      this.registers = new Register[count];
+      this.identifiers = new Identifier[count];
+      this.labels = new Label[count];
+      this.functionNames = new FunctionName[count];
+   }
+
+   public static sparrowv.Program read(Path path) throws IOException {
+      return new SparrowVBinaryReader(BinaryDecoder.map(path)).readProgram();
+   }
+
+   public sparrowv.Program readProgram() throws IOException {
+      int count = in.readVarInt();
+      ArrayList<FunctionDecl> funList = new ArrayList<FunctionDecl>(count);
+      for (int i = 0; i < count; i++) {
+         funList.add(readFunction());
+      }
+      sparrowv.Program program = new sparrowv.Program(funList);
+      program.accept(new SetParents());
+      return program;
+   }
+
+   FunctionDecl readFunction() throws IOException {
+      FunctionName name = functionName();
+      int paramCount = in.readVarInt();
+      ArrayList<Identifier> formalParameters = new ArrayList<Identifier>(paramCount);
+      for (int i = 0; i < paramCount; i++) {
+         formalParameters.add(identifier());
+      }
+
+      int instrCount = in.readVarInt();
+      ArrayList<Instruction> instrList = new ArrayList<Instruction>(instrCount);
+      for (int i = 0; i < instrCount; i++) {
+         instrList.add(readInstruction());
+      }
+      sparrowv.Block block = new sparrowv.Block(instrList, identifier());
+
+      return new FunctionDecl(name, formalParameters, block);
+   }
+
+   Instruction readInstruction() throws IOException {
+      int opcode = in.readVarInt();
+      switch (opcode) {
+         case OP_LABEL:
+            return new LabelInstr(label());
+         case OP_MOVE_REG_INTEGER:
+            return new Move_Reg_Integer(register(), in.readSignedVarInt());
+         case OP_MOVE_REG_FUNCNAME:
+            return new Move_Reg_FuncName(register(), functionName());
+         case OP_ADD:
+            return new sparrowv.Add(register(), register(), register());
+         case OP_SUBTRACT:
+            return new sparrowv.Subtract(register(), register(), register());
+         case OP_MULTIPLY:
+            return new sparrowv.Multiply(register(), register(), register());
+         case OP_LESSTHAN:
+            return new sparrowv.LessThan(register(), register(), register());
+         case OP_LOAD:
+            return new sparrowv.Load(register(), register(), in.readSignedVarInt());
+         case OP_STORE:
+            return new sparrowv.Store(register(), in.readSignedVarInt(), register());
+         case OP_MOVE_REG_REG:
+            return new Move_Reg_Reg(register(), register());
+         case OP_MOVE_ID_REG:
+            return new Move_Id_Reg(identifier(), register());
+         case OP_MOVE_REG_ID:
+            return new Move_Reg_Id(register(), identifier());
+         case OP_ALLOC:
+            return new sparrowv.Alloc(register(), register());
+         case OP_PRINT:
+            return new sparrowv.Print(register());
+         case OP_ERROR:
+            return new sparrowv.ErrorMessage(in.symbol(in.readSymbolId()));
+         case OP_GOTO:
+            return new sparrowv.Goto(label());
+         case OP_IFGOTO:
+            return new sparrowv.IfGoto(register(), label());
+         case OP_CALL: {
+            Register lhs = register();
+            Register callee = register();
+            int argCount = in.readVarInt();
+            ArrayList<Identifier> args = new ArrayList<Identifier>(argCount);
+            for (int i = 0; i < argCount; i++) {
+               args.add(identifier());
+            }
+            return new sparrowv.Call(lhs, callee, args);
+         }
+         default:
+            throw new IOException("Unknown sparrowv opcode " + opcode);
+      }
+   }
+
+   Register register() {
+      int id = in.readSymbolId();
+      if (registers[id] == null) registers[id] = new Register(in.symbol(id));
+      return registers[id];
+   }
+
+   Identifier identifier() {
+      int id = in.readSymbolId();
+      if (identifiers[id] == null) identifiers[id] = new Identifier(in.symbol(id));
+      return identifiers[id];
+   }
+
+   Label label() {
+      int id = in.readSymbolId();
+      if (labels[id] == null) labels[id] = new Label(in.symbol(id));
+      return labels[id];
+   }
+
+   FunctionName functionName() {
+      int id = in.readSymbolId();
+      if (functionNames[id] == null) functionNames[id] = new FunctionName(in.symbol(id));
+      return functionNames[id];
+   }
+}
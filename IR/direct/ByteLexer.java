@@ -0,0 +1,315 @@
+package IR.direct;
+
+import IR.ParseException;
+import IR.SparrowParserConstants;
+
+import java.nio.ByteBuffer;
+
+// hand-written lexer for ASCII Sparrow / Sparrow-V text held in a byte[] or (mapped) ByteBuffer
+//   - accepts the same tokens as SparrowParserTokenManager, without going through JavaCharStream
+//   - keywords and identifiers are looked up in an intern table, so a name seen before costs no allocation
+//   - line / column are only computed when position() is asked for, i.e. when reporting an error
+//   - subclasses may hold only a window of the input and slide it forward in refill()
+public class ByteLexer implements TokenSource, SparrowParserConstants {
+
+  static final int COLON = 35;
+  static final int TIMES = 36;
+
+  static final String[] KEYWORDS = { "func", "if0", "goto", "call", "alloc", "print", "error", "return" };
+  static final int[] KEYWORD_KINDS = { FUNC, IFZERO, GOTO, CALL, ALLOC, PRINT, ERROR, RETURN };
+
+  ByteBuffer in;
+  int pos;            // next unread byte
+  int limit;          // end of the bytes currently addressable in `in`
+
+  int kind;
+  int tokenStart;
+  int tokenEnd;
+  String image;       // identifiers, keywords and literals; punctuation is left null
+
+  // open addressing table of interned names
+  String[] names = new String[1024];
+  int[] nameKinds = new int[1024];
+  int nameCount = 0;
+
+  public ByteLexer(byte[] in) {
+    this(ByteBuffer.wrap(in));
+  }
+
+  public ByteLexer(ByteBuffer in) {
+    this.in = in;
+    this.pos = in.position();
+    this.limit = in.limit();
+    for (int i = 0; i < KEYWORDS.length; i++) {
+      intern(KEYWORDS[i], KEYWORD_KINDS[i]);
+    }
+  }
+
+  public int kind() {
+    return kind;
+  }
+
+  public String image() {
+    if (image == null) {
+      return kind == EOF ? "" : literal(kind);
+    }
+    return image;
+  }
+
+  public String position() {
+    int line = 1;
+    int column = 1;
+    for (int i = in.position(); i < tokenStart; i++) {
+      if (in.get(i) == '\n') {
+        line++;
+        column = 1;
+      } else {
+        column++;
+      }
+    }
+    return "line " + line + ", column " + column;
+  }
+
+  static String literal(int kind) {
+    String quoted = tokenImage[kind];
+    return quoted.substring(1, quoted.length() - 1);
+  }
+
+  // true if there is a byte at pos, pulling in more input if needed
+  boolean more() {
+    return pos < limit || refill();
+  }
+
+  // make bytes past limit addressable, keeping everything from tokenStart on; false at end of input
+  // a refill may move the window, so positions are only stable relative to pos and tokenStart
+  boolean refill() {
+    return false;
+  }
+
+  int peek(int offset) {
+    while (pos + offset >= limit) {
+      if (!refill()) {
+        return -1;
+      }
+    }
+    return in.get(pos + offset) & 0xff;
+  }
+
+  public int next() throws ParseException {
+    skipWhitespaceAndComments();
+    tokenStart = pos;
+    image = null;
+
+    if (!more()) {
+      tokenEnd = pos;
+      return kind = EOF;
+    }
+
+    int c = in.get(pos) & 0xff;
+    if (isLetter(c)) {
+      return scanName();
+    }
+    if (c >= '0' && c <= '9') {
+      return scanInteger();
+    }
+    if (c == '"') {
+      return scanString();
+    }
+
+    pos++;
+    tokenEnd = pos;
+    switch (c) {
+      case '(': return kind = LPAREN;
+      case ')': return kind = RPAREN;
+      case '[': return kind = LSQPAREN;
+      case ']': return kind = RSQPAREN;
+      case '{': return kind = LBRACE;
+      case '}': return kind = RBRACE;
+      case ';': return kind = SEMICOLON;
+      case '.': return kind = DOT;
+      case '=': return kind = ASSIGN;
+      case '<': return kind = LT;
+      case '+': return kind = PLUS;
+      case '-': return kind = MINUS;
+      case '@': return kind = ADDRESS;
+      case ':': return kind = COLON;
+      case '*': return kind = TIMES;
+      default:
+        pos--;
+        throw lexicalError("Encountered: \"" + (char) c + "\" (" + c + ")");
+    }
+  }
+
+  void skipWhitespaceAndComments() throws ParseException {
+    while (true) {
+      tokenStart = pos;   // nothing before this point is needed any more
+      if (!more()) {
+        return;
+      }
+      int c = in.get(pos) & 0xff;
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+        pos++;
+      } else if (c == '/' && peek(1) == '/') {
+        pos += 2;
+        while (more() && in.get(pos) != '\n' && in.get(pos) != '\r') {
+          pos++;
+          tokenStart = pos;
+        }
+        // SINGLE_LINE_COMMENT includes its line break, so like SparrowParserTokenManager reject one cut off by EOF
+        if (!more()) {
+          throw lexicalError("Encountered: <EOF> after a single-line comment");
+        }
+      } else if (c == '/' && peek(1) == '*') {
+        pos += 2;
+        while (!(peek(0) == '*' && peek(1) == '/')) {
+          if (!more()) {
+            throw lexicalError("Unterminated comment");
+          }
+          pos++;
+          tokenStart = pos;
+        }
+        pos += 2;
+      } else {
+        return;
+      }
+    }
+  }
+
+  static boolean isLetter(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+  }
+
+  static boolean isLetterOrDigit(int c) {
+    return isLetter(c) || (c >= '0' && c <= '9');
+  }
+
+  int scanName() {
+    int hash = 0;
+    int c;
+    while (more() && isLetterOrDigit(c = in.get(pos) & 0xff)) {
+      hash = 31 * hash + c;
+      pos++;
+    }
+    tokenEnd = pos;
+    int slot = lookup(hash, tokenStart, tokenEnd);
+    if (names[slot] == null) {
+      return kind = insert(slot, text(tokenStart, tokenEnd), IDENTIFIER);
+    }
+    image = names[slot];
+    return kind = nameKinds[slot];
+  }
+
+  // INTEGER_LITERAL: ["1"-"9"] (["0"-"9"])* | "0"
+  int scanInteger() {
+    if (in.get(pos) == '0') {
+      pos++;
+    } else {
+      while (more() && in.get(pos) >= '0' && in.get(pos) <= '9') {
+        pos++;
+      }
+    }
+    tokenEnd = pos;
+    image = text(tokenStart, tokenEnd);
+    return kind = INTEGER_LITERAL;
+  }
+
+  // STRINGCONSTANT: "\"" ( ~["\"", "\\", "\n", "\r"] | "\\" ["n", "\""] )* "\""
+  int scanString() throws ParseException {
+    pos++;
+    while (true) {
+      if (!more() || in.get(pos) == '\n' || in.get(pos) == '\r') {
+        throw lexicalError("Unterminated string literal");
+      }
+      byte c = in.get(pos++);
+      if (c == '"') {
+        break;
+      }
+      if (c == '\\') {
+        if (!more()) {
+          throw lexicalError("Unterminated string literal");
+        }
+        int escaped = in.get(pos) & 0xff;
+        if (escaped != 'n' && escaped != '"') {
+          throw lexicalError("Encountered: \"" + (char) escaped + "\" (" + escaped + ")");
+        }
+        pos++;
+      }
+    }
+    tokenEnd = pos;
+    image = text(tokenStart, tokenEnd);
+    return kind = STRINGCONSTANT;
+  }
+
+  String text(int from, int to) {
+    char[] chars = new char[to - from];
+    for (int i = from; i < to; i++) {
+      chars[i - from] = (char) (in.get(i) & 0xff);
+    }
+    return new String(chars);
+  }
+
+  // slot holding the name in bytes [from, to), or the empty slot where it belongs
+  int lookup(int hash, int from, int to) {
+    int mask = names.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (names[slot] != null && !sameName(names[slot], from, to)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  boolean sameName(String name, int from, int to) {
+    if (name.length() != to - from) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      if (name.charAt(i - from) != (in.get(i) & 0xff)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int insert(int slot, String name, int nameKind) {
+    names[slot] = name;
+    nameKinds[slot] = nameKind;
+    image = name;
+    if (++nameCount * 2 > names.length) {
+      grow();
+    }
+    return nameKind;
+  }
+
+  void intern(String name, int nameKind) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + name.charAt(i);
+    }
+    int mask = names.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (names[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    names[slot] = name;
+    nameKinds[slot] = nameKind;
+    nameCount++;
+  }
+
+  void grow() {
+    String[] oldNames = names;
+    int[] oldKinds = nameKinds;
+    names = new String[oldNames.length * 2];
+    nameKinds = new int[oldNames.length * 2];
+    nameCount = 0;
+    for (int i = 0; i < oldNames.length; i++) {
+      if (oldNames[i] != null) {
+        intern(oldNames[i], oldKinds[i]);
+      }
+    }
+  }
+
+  ParseException lexicalError(String message) {
+    tokenStart = pos;
+    return new ParseException("Lexical error at " + position() + ". " + message);
+  }
+}
@@ -0,0 +1,209 @@
+package IR.direct;
+
+import IR.ParseException;
+import IR.SparrowParserConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// recursive descent parser for the Sparrow / Sparrow-V grammar that hands every construct straight to a
+// ProgramBuilder, so no IR.syntaxtree nodes are allocated
+//
+// After left factoring the grammar is LL(1):
+//   Instruction -> Id ":" | Id "=" Rhs | "[" Id "+" Int "]" "=" Id
+//                | "print" "(" Id ")" | "error" "(" String ")" | "goto" Id | "if0" Id "goto" Id
+//   Rhs         -> Int | "@" Id | "[" Id "+" Int "]" | "alloc" "(" Id ")" | "call" Id "(" Id* ")"
+//                | Id ( ("+" | "-" | "*" | "<") Id )?
+public class DirectParser<P, F, I> implements SparrowParserConstants {
+
+  // literal tokens that have no named constant in SparrowParserConstants
+  static final int COLON = 35;
+  static final int TIMES = 36;
+
+  TokenSource tokens;
+  ProgramBuilder<P, F, I> builder;
+
+  public DirectParser(TokenSource tokens, ProgramBuilder<P, F, I> builder) throws ParseException {
+    this.tokens = tokens;
+    this.builder = builder;
+    tokens.next();
+  }
+
+  /**
+   * ( FunctionDeclaration() )* <EOF>
+   */
+  public P Program() throws ParseException {
+    ArrayList<F> functions = new ArrayList<F>();
+    F function;
+    while ((function = NextFunction()) != null) {
+      functions.add(function);
+    }
+    return builder.program(functions);
+  }
+
+  /**
+   * the next function declaration, or null once <EOF> is reached
+   */
+  public F NextFunction() throws ParseException {
+    if (tokens.kind() == EOF) {
+      return null;
+    }
+    return FunctionDeclaration();
+  }
+
+  /**
+   * "func" FunctionName() "(" ( Identifier() )* ")" Block()
+   */
+  F FunctionDeclaration() throws ParseException {
+    expect(FUNC);
+    String name = consume(IDENTIFIER);
+    expect(LPAREN);
+    ArrayList<String> formalParameters = new ArrayList<String>();
+    while (tokens.kind() == IDENTIFIER) {
+      formalParameters.add(consume(IDENTIFIER));
+    }
+    expect(RPAREN);
+
+    ArrayList<I> instructions = new ArrayList<I>();
+    while (tokens.kind() != RETURN) {
+      instructions.add(Instruction());
+    }
+    expect(RETURN);
+    String returnId = consume(IDENTIFIER);
+
+    return builder.function(name, formalParameters, instructions, returnId);
+  }
+
+  I Instruction() throws ParseException {
+    switch (tokens.kind()) {
+      case IDENTIFIER: {
+        String lhs = consume(IDENTIFIER);
+        if (tokens.kind() == COLON) {
+          tokens.next();
+          return builder.label(lhs);
+        }
+        expect(ASSIGN);
+        return Assignment(lhs);
+      }
+      case LSQPAREN: {
+        tokens.next();
+        String base = consume(IDENTIFIER);
+        expect(PLUS);
+        int offset = integer();
+        expect(RSQPAREN);
+        expect(ASSIGN);
+        return builder.store(base, offset, consume(IDENTIFIER));
+      }
+      case PRINT: {
+        tokens.next();
+        expect(LPAREN);
+        String content = consume(IDENTIFIER);
+        expect(RPAREN);
+        return builder.print(content);
+      }
+      case ERROR: {
+        tokens.next();
+        expect(LPAREN);
+        String msg = consume(STRINGCONSTANT);
+        expect(RPAREN);
+        return builder.errorMessage(msg);
+      }
+      case GOTO: {
+        tokens.next();
+        return builder.gotoLabel(consume(IDENTIFIER));
+      }
+      case IFZERO: {
+        tokens.next();
+        String condition = consume(IDENTIFIER);
+        expect(GOTO);
+        return builder.ifGoto(condition, consume(IDENTIFIER));
+      }
+      default:
+        throw error("an instruction or \"return\"");
+    }
+  }
+
+  // everything after "lhs ="
+  I Assignment(String lhs) throws ParseException {
+    switch (tokens.kind()) {
+      case INTEGER_LITERAL:
+        return builder.setInteger(lhs, integer());
+      case ADDRESS:
+        tokens.next();
+        return builder.setFuncName(lhs, consume(IDENTIFIER));
+      case LSQPAREN: {
+        tokens.next();
+        String base = consume(IDENTIFIER);
+        expect(PLUS);
+        int offset = integer();
+        expect(RSQPAREN);
+        return builder.load(lhs, base, offset);
+      }
+      case ALLOC: {
+        tokens.next();
+        expect(LPAREN);
+        String size = consume(IDENTIFIER);
+        expect(RPAREN);
+        return builder.alloc(lhs, size);
+      }
+      case CALL: {
+        tokens.next();
+        String callee = consume(IDENTIFIER);
+        expect(LPAREN);
+        ArrayList<String> args = new ArrayList<String>();
+        while (tokens.kind() == IDENTIFIER) {
+          args.add(consume(IDENTIFIER));
+        }
+        expect(RPAREN);
+        return builder.call(lhs, callee, args);
+      }
+      case IDENTIFIER: {
+        String arg1 = consume(IDENTIFIER);
+        switch (tokens.kind()) {
+          case PLUS:
+            tokens.next();
+            return builder.add(lhs, arg1, consume(IDENTIFIER));
+          case MINUS:
+            tokens.next();
+            return builder.subtract(lhs, arg1, consume(IDENTIFIER));
+          case TIMES:
+            tokens.next();
+            return builder.multiply(lhs, arg1, consume(IDENTIFIER));
+          case LT:
+            tokens.next();
+            return builder.lessThan(lhs, arg1, consume(IDENTIFIER));
+          default:
+            return builder.move(lhs, arg1);
+        }
+      }
+      default:
+        throw error("an integer, \"@\", \"[\", \"alloc\", \"call\" or an identifier");
+    }
+  }
+
+  int integer() throws ParseException {
+    return Integer.parseInt(consume(INTEGER_LITERAL));
+  }
+
+  void expect(int kind) throws ParseException {
+    if (tokens.kind() != kind) {
+      throw error(tokenImage[kind]);
+    }
+    tokens.next();
+  }
+
+  String consume(int kind) throws ParseException {
+    if (tokens.kind() != kind) {
+      throw error(tokenImage[kind]);
+    }
+    String image = tokens.image();
+    tokens.next();
+    return image;
+  }
+
+  ParseException error(String expected) {
+    String found = tokens.kind() == EOF ? "<EOF>" : "\"" + tokens.image() + "\"";
+    return new ParseException("Encountered " + found + " at " + tokens.position() + ".\n"
+        + "Was expecting: " + expected);
+  }
+}
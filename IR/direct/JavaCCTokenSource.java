@@ -0,0 +1,46 @@
+package IR.direct;
+
+import IR.ParseException;
+import IR.SparrowParser;
+import IR.SparrowParserTokenManager;
+import IR.Token;
+import IR.TokenMgrError;
+
+import java.io.InputStream;
+
+// feeds the generated JavaCC lexer to DirectParser
+// the generated lexer is static (shared with SparrowParser), so only one of these may be in use at a time
+public class JavaCCTokenSource implements TokenSource {
+
+  Token current;
+
+  public JavaCCTokenSource(InputStream in) {
+    // SparrowParser owns the static JavaCharStream; let it set up (or reset) the lexer for us
+    if (SparrowParser.token_source == null) {
+      new SparrowParser(in);
+    } else {
+      SparrowParser.ReInit(in);
+    }
+  }
+
+  public int next() throws ParseException {
+    try {
+      current = SparrowParserTokenManager.getNextToken();
+    } catch (TokenMgrError e) {
+      throw new ParseException(e.getMessage());
+    }
+    return current.kind;
+  }
+
+  public int kind() {
+    return current.kind;
+  }
+
+  public String image() {
+    return current.image;
+  }
+
+  public String position() {
+    return "line " + current.beginLine + ", column " + current.beginColumn;
+  }
+}
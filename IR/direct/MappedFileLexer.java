@@ -0,0 +1,95 @@
+package IR.direct;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// ByteLexer over a file that is memory mapped one window at a time
+//   - the lexer reads straight out of the page cache, nothing is copied into a char[]
+//   - only the current window is mapped, so input of any size is lexed in bounded memory
+//   - when the lexer runs off the end of the window, a new one is mapped starting at the current token
+public class MappedFileLexer extends ByteLexer implements AutoCloseable {
+
+  public static final int DEFAULT_WINDOW = 16 * 1024 * 1024;
+  // old windows are only unmapped once collected, so tiny windows would pile up mappings
+  public static final int MIN_WINDOW = 64 * 1024;
+
+  FileChannel channel;
+  long fileSize;
+  long base;          // file offset of in[0]
+  int window;
+
+  public MappedFileLexer(Path path) throws IOException {
+    this(path, DEFAULT_WINDOW);
+  }
+
+  public MappedFileLexer(Path path, int window) throws IOException {
+    this(FileChannel.open(path, StandardOpenOption.READ), Math.max(window, MIN_WINDOW));
+  }
+
+  MappedFileLexer(FileChannel channel, int window) throws IOException {
+    super(map(channel, 0, window));
+    this.channel = channel;
+    this.fileSize = channel.size();
+    this.base = 0;
+    this.window = window;
+  }
+
+  static MappedByteBuffer map(FileChannel channel, long offset, int window) throws IOException {
+    long size = Math.min(window, channel.size() - offset);
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+  }
+
+  boolean refill() {
+    if (base + limit >= fileSize) {
+      return false;
+    }
+    // a single token longer than the window: widen the window rather than drop its start
+    if (tokenStart == 0) {
+      window *= 2;
+    }
+    long offset = base + tokenStart;
+    try {
+      in = map(channel, offset, window);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    pos -= tokenStart;
+    tokenEnd -= tokenStart;
+    tokenStart = 0;
+    base = offset;
+    limit = in.limit();
+    return true;
+  }
+
+  // only called on errors, so rescanning the file up to the token is fine
+  public String position() {
+    long end = base + tokenStart;
+    int line = 1;
+    long column = 1;
+    try {
+      for (long offset = 0; offset < end; offset += window) {
+        MappedByteBuffer chunk = map(channel, offset, window);
+        int length = (int) Math.min(chunk.limit(), end - offset);
+        for (int i = 0; i < length; i++) {
+          if (chunk.get(i) == '\n') {
+            line++;
+            column = 1;
+          } else {
+            column++;
+          }
+        }
+      }
+    } catch (IOException e) {
+      return "offset " + end;
+    }
+    return "line " + line + ", column " + column;
+  }
+
+  public void close() throws IOException {
+    channel.close();
+  }
+}
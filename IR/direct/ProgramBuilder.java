@@ -0,0 +1,44 @@
+package IR.direct;
+
+import java.util.List;
+
+// receives the pieces of a program from DirectParser, in source order
+//   P - program, F - function declaration, I - instruction
+public interface ProgramBuilder<P, F, I> {
+
+  P program(List<F> functions);
+
+  F function(String name, List<String> formalParameters, List<I> instructions, String returnId);
+
+  I label(String label);
+
+  I setInteger(String lhs, int value);
+
+  I setFuncName(String lhs, String functionName);
+
+  I add(String lhs, String arg1, String arg2);
+
+  I subtract(String lhs, String arg1, String arg2);
+
+  I multiply(String lhs, String arg1, String arg2);
+
+  I lessThan(String lhs, String arg1, String arg2);
+
+  I load(String lhs, String base, int offset);
+
+  I store(String base, int offset, String rhs);
+
+  I move(String lhs, String rhs);
+
+  I alloc(String lhs, String size);
+
+  I print(String content);
+
+  I errorMessage(String msg);
+
+  I gotoLabel(String label);
+
+  I ifGoto(String condition, String label);
+
+  I call(String lhs, String callee, List<String> args);
+}
@@ -0,0 +1,137 @@
+package IR.direct;
+
+import IR.token.FunctionName;
+import IR.token.Identifier;
+import IR.token.Label;
+import sparrow.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// builds sparrow objects from DirectParser, the parser-action counterpart of IR.visitor.SparrowConstructor
+public class SparrowBuilder implements ProgramBuilder<sparrow.Program, FunctionDecl, Instruction> {
+
+   // token objects are immutable, so every occurrence of a name shares one
+   HashMap<String, Identifier> identifiers = new HashMap<String, Identifier>();
+   HashMap<String, Label> labels = new HashMap<String, Label>();
+   HashMap<String, FunctionName> functionNames = new HashMap<String, FunctionName>();
+
+   public sparrow.Program program(List<FunctionDecl> functions) {
+      sparrow.Program program = new sparrow.Program(functions);
+      for (FunctionDecl fd : functions) {
+         fd.parent = program;
+      }
+      return program;
+   }
+
+   public FunctionDecl function(String name, List<String> formalParameters, List<Instruction> instructions, String returnId) {
+      ArrayList<Identifier> params = new ArrayList<Identifier>(formalParameters.size());
+      for (String param : formalParameters) {
+         params.add(toIdentifier(param));
+      }
+      sparrow.Block block = new sparrow.Block(instructions, toIdentifier(returnId));
+      FunctionDecl funDecl = new FunctionDecl(toFunctionName(name), params, block);
+
+      block.parent = funDecl;
+      for (Instruction i : instructions) {
+         i.parent = block;
+      }
+      return funDecl;
+   }
+
+   public Instruction label(String label) {
+      return new LabelInstr(toLabel(label));
+   }
+
+   public Instruction setInteger(String lhs, int value) {
+      return new Move_Id_Integer(toIdentifier(lhs), value);
+   }
+
+   public Instruction setFuncName(String lhs, String functionName) {
+      return new Move_Id_FuncName(toIdentifier(lhs), toFunctionName(functionName));
+   }
+
+   public Instruction add(String lhs, String arg1, String arg2) {
+      return new sparrow.Add(toIdentifier(lhs), toIdentifier(arg1), toIdentifier(arg2));
+   }
+
+   public Instruction subtract(String lhs, String arg1, String arg2) {
+      return new sparrow.Subtract(toIdentifier(lhs), toIdentifier(arg1), toIdentifier(arg2));
+   }
+
+   public Instruction multiply(String lhs, String arg1, String arg2) {
+      return new sparrow.Multiply(toIdentifier(lhs), toIdentifier(arg1), toIdentifier(arg2));
+   }
+
+   public Instruction lessThan(String lhs, String arg1, String arg2) {
+      return new sparrow.LessThan(toIdentifier(lhs), toIdentifier(arg1), toIdentifier(arg2));
+   }
+
+   public Instruction load(String lhs, String base, int offset) {
+      return new sparrow.Load(toIdentifier(lhs), toIdentifier(base), offset);
+   }
+
+   public Instruction store(String base, int offset, String rhs) {
+      return new sparrow.Store(toIdentifier(base), offset, toIdentifier(rhs));
+   }
+
+   public Instruction move(String lhs, String rhs) {
+      return new Move_Id_Id(toIdentifier(lhs), toIdentifier(rhs));
+   }
+
+   public Instruction alloc(String lhs, String size) {
+      return new sparrow.Alloc(toIdentifier(lhs), toIdentifier(size));
+   }
+
+   public Instruction print(String content) {
+      return new sparrow.Print(toIdentifier(content));
+   }
+
+   public Instruction errorMessage(String msg) {
+      return new sparrow.ErrorMessage(msg);
+   }
+
+   public Instruction gotoLabel(String label) {
+      return new sparrow.Goto(toLabel(label));
+   }
+
+   public Instruction ifGoto(String condition, String label) {
+      return new sparrow.IfGoto(toIdentifier(condition), toLabel(label));
+   }
+
+   public Instruction call(String lhs, String callee, List<String> args) {
+      ArrayList<Identifier> actualParameterList = new ArrayList<Identifier>(args.size());
+      for (String arg : args) {
+         actualParameterList.add(toIdentifier(arg));
+      }
+      return new sparrow.Call(toIdentifier(lhs), toIdentifier(callee), actualParameterList);
+   }
+
+   Identifier toIdentifier(String name) {
+      Identifier id = identifiers.get(name);
+      if (id == null) {
+         id = new Identifier(name);
+         identifiers.put(name, id);
+      }
+      return id;
+   }
+
+   Label toLabel(String name) {
+      Label l = labels.get(name);
+      if (l == null) {
+         l = new Label(name);
+         labels.put(name, l);
+      }
+      return l;
+   }
+
+   FunctionName toFunctionName(String name) {
+      FunctionName fn = functionNames.get(name);
+      if (fn == null) {
+         fn = new FunctionName(name);
+         functionNames.put(name, fn);
+      }
+      return fn;
+   }
+}
@@ -0,0 +1,156 @@
+package IR.direct;
+
+import IR.registers.Registers;
+import IR.token.FunctionName;
+import IR.token.Identifier;
+import IR.token.Label;
+import IR.token.Register;
+import sparrowv.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// builds sparrowv objects from DirectParser, the parser-action counterpart of IR.visitor.SparrowVConstructor
+public class SparrowVBuilder implements ProgramBuilder<sparrowv.Program, FunctionDecl, Instruction> {
+
+   // token objects are immutable, so every occurrence of a name shares one
+   HashMap<String, Register> registers = new HashMap<String, Register>();
+   HashMap<String, Identifier> identifiers = new HashMap<String, Identifier>();
+   HashMap<String, Label> labels = new HashMap<String, Label>();
+   HashMap<String, FunctionName> functionNames = new HashMap<String, FunctionName>();
+
+   public sparrowv.Program program(List<FunctionDecl> functions) {
+      sparrowv.Program program = new sparrowv.Program(functions);
+      for (FunctionDecl fd : functions) {
+         fd.parent = program;
+      }
+      return program;
+   }
+
+   public FunctionDecl function(String name, List<String> formalParameters, List<Instruction> instructions, String returnId) {
+      ArrayList<Identifier> params = new ArrayList<Identifier>(formalParameters.size());
+      for (String param : formalParameters) {
+         params.add(toIdentifier(param));
+      }
+      sparrowv.Block block = new sparrowv.Block(instructions, toIdentifier(returnId));
+      FunctionDecl funDecl = new FunctionDecl(toFunctionName(name), params, block);
+
+      block.parent = funDecl;
+      for (Instruction i : instructions) {
+         i.parent = block;
+      }
+      return funDecl;
+   }
+
+   public Instruction label(String label) {
+      return new LabelInstr(toLabel(label));
+   }
+
+   public Instruction setInteger(String lhs, int value) {
+      return new Move_Reg_Integer(toRegister(lhs), value);
+   }
+
+   public Instruction setFuncName(String lhs, String functionName) {
+      return new Move_Reg_FuncName(toRegister(lhs), toFunctionName(functionName));
+   }
+
+   public Instruction add(String lhs, String arg1, String arg2) {
+      return new sparrowv.Add(toRegister(lhs), toRegister(arg1), toRegister(arg2));
+   }
+
+   public Instruction subtract(String lhs, String arg1, String arg2) {
+      return new sparrowv.Subtract(toRegister(lhs), toRegister(arg1), toRegister(arg2));
+   }
+
+   public Instruction multiply(String lhs, String arg1, String arg2) {
+      return new sparrowv.Multiply(toRegister(lhs), toRegister(arg1), toRegister(arg2));
+   }
+
+   public Instruction lessThan(String lhs, String arg1, String arg2) {
+      return new sparrowv.LessThan(toRegister(lhs), toRegister(arg1), toRegister(arg2));
+   }
+
+   public Instruction load(String lhs, String base, int offset) {
+      return new sparrowv.Load(toRegister(lhs), toRegister(base), offset);
+   }
+
+   public Instruction store(String base, int offset, String rhs) {
+      return new sparrowv.Store(toRegister(base), offset, toRegister(rhs));
+   }
+
+   // same register / identifier split as SparrowVConstructor.visit(Move)
+   public Instruction move(String lhs, String rhs) {
+      if (Registers.riscVregs.contains(lhs)) {
+         if (Registers.riscVregs.contains(rhs)) {
+            return new Move_Reg_Reg(toRegister(lhs), toRegister(rhs));
+         }
+         return new Move_Reg_Id(toRegister(lhs), toIdentifier(rhs));
+      }
+      return new Move_Id_Reg(toIdentifier(lhs), toRegister(rhs));
+   }
+
+   public Instruction alloc(String lhs, String size) {
+      return new sparrowv.Alloc(toRegister(lhs), toRegister(size));
+   }
+
+   public Instruction print(String content) {
+      return new sparrowv.Print(toRegister(content));
+   }
+
+   public Instruction errorMessage(String msg) {
+      return new sparrowv.ErrorMessage(msg);
+   }
+
+   public Instruction gotoLabel(String label) {
+      return new sparrowv.Goto(toLabel(label));
+   }
+
+   public Instruction ifGoto(String condition, String label) {
+      return new sparrowv.IfGoto(toRegister(condition), toLabel(label));
+   }
+
+   public Instruction call(String lhs, String callee, List<String> args) {
+      ArrayList<Identifier> actualParameterList = new ArrayList<Identifier>(args.size());
+      for (String arg : args) {
+         actualParameterList.add(toIdentifier(arg));
+      }
+      return new sparrowv.Call(toRegister(lhs), toRegister(callee), actualParameterList);
+   }
+
+   Register toRegister(String name) {
+      Register r = registers.get(name);
+      if (r == null) {
+         r = new Register(name);
+         registers.put(name, r);
+      }
+      return r;
+   }
+
+   Identifier toIdentifier(String name) {
+      Identifier id = identifiers.get(name);
+      if (id == null) {
+         id = new Identifier(name);
+         identifiers.put(name, id);
+      }
+      return id;
+   }
+
+   Label toLabel(String name) {
+      Label l = labels.get(name);
+      if (l == null) {
+         l = new Label(name);
+         labels.put(name, l);
+      }
+      return l;
+   }
+
+   FunctionName toFunctionName(String name) {
+      FunctionName fn = functionNames.get(name);
+      if (fn == null) {
+         fn = new FunctionName(name);
+         functionNames.put(name, fn);
+      }
+      return fn;
+   }
+}
@@ -0,0 +1,19 @@
+package IR.direct;
+
+import IR.ParseException;
+
+// a stream of Sparrow tokens, one at a time, using the kinds in IR.SparrowParserConstants
+public interface TokenSource {
+
+  // advances to the next token (comments and whitespace skipped) and returns its kind
+  int next() throws ParseException;
+
+  // kind of the current token
+  int kind();
+
+  // text of the current token
+  String image();
+
+  // human readable location of the current token, only needed for error messages
+  String position();
+}
@@ -6,6 +6,7 @@ import IR.token.Identifier;
 import IR.token.Label;
 import IR.token.Register;
 
+import java.util.HashSet;
 import java.util.List;
 
 public class ErrorReport {
@@ -85,14 +86,13 @@ public class ErrorReport {
   }
 
   public void checkForDuplicates(String place, String kind, List<String> l) {
-    for (int i=0; i<l.size(); i++) {
-       for (int j=i+1; j<l.size(); j++) {
-           if (l.get(i).equals
-              (l.get(j))) {
-                   error(
-                     place + " declares the " + kind + " " + 
-                     l.get(i) + " more than once" );
-           }
+    HashSet<String> seen = new HashSet<String>();
+    HashSet<String> reported = new HashSet<String>();
+    for (String name : l) {
+       if (!seen.add(name) && reported.add(name)) {
+           error(
+             place + " declares the " + kind + " " +
+             name + " more than once" );
        }
     }
   }
@@ -0,0 +1,10 @@
+package IR.errors;
+
+// thrown when a program fails validation; the message lists every error found, as ErrorReport formats them
+public class InvalidProgramException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  public InvalidProgramException(ErrorReport report) {
+    super(report.getErrorMessage());
+  }
+}
@@ -3,10 +3,11 @@ package IR.registers;
 import java.util.Set;
 
 public class Registers {
+  // filled in once by the static initializer, so it is complete before any thread can read it, and never changed after
   public static final Set<String> riscVregs =
           new java.util.HashSet<>();
 
-  public static void SetRiscVregs() {
+  static {
                                               riscVregs.add("a2");
     riscVregs.add("a3"); riscVregs.add("a4"); riscVregs.add("a5");
     riscVregs.add("a6"); riscVregs.add("a7");
@@ -28,6 +28,16 @@ import java.util.Enumeration;
 public class SparrowVConstructor extends DepthFirstVisitor {
 
    sparrowv.Program program;
+   boolean setParents;
+
+   public SparrowVConstructor() {
+      this(true);
+   }
+
+   // without parent links, for callers that run SetParents themselves
+   public SparrowVConstructor(boolean setParents) {
+      this.setParents = setParents;
+   }
 
    public sparrowv.Program getProgram() {
      return this.program;
@@ -51,7 +61,8 @@ public class SparrowVConstructor extends DepthFirstVisitor {
    public void visit(IR.syntaxtree.Program n) {
       n.f0.accept(this);
       this.program = new sparrowv.Program(this.funList);
-      this.program.accept(new SetParents());
+      if (setParents)
+         this.program.accept(new SetParents());
    }
 
    /**
@@ -1,27 +1,423 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import IR.SparrowParser;
+import IR.binary.SparrowVBinaryReader;
+import IR.direct.ByteLexer;
+import IR.direct.DirectParser;
+import IR.direct.JavaCCTokenSource;
+import IR.direct.MappedFileLexer;
+import IR.direct.SparrowVBuilder;
+import IR.direct.TokenSource;
+import IR.errors.InvalidProgramException;
 import IR.visitor.SparrowVConstructor;
 import IR.syntaxtree.Node;
-import IR.registers.Registers;
 
+import sparrowv.FunctionDecl;
+import sparrowv.Instruction;
 import sparrowv.Program;
+import sparrowv.visitor.BinaryWriterVisitor;
+import sparrowv.visitor.CodegenOptions;
+import sparrowv.visitor.DeadCodeEliminationVisitor;
+import sparrowv.visitor.DepthFirst;
+import sparrowv.visitor.FrameDataVisitor;
+import sparrowv.visitor.PrintVisitor;
 import sparrowv.visitor.RiscVTranslateVisitor;
+import sparrowv.visitor.SetParents;
+import sparrowv.visitor.SpillReloadEliminationVisitor;
+import sparrowv.visitor.ValidatorVisitor;
+
+import sv2v.CompilationCache;
+import sv2v.CompileServer;
+import sv2v.Compiler;
+import sv2v.PassManager;
+import sv2v.PhaseMetrics;
+import sv2v.PipelinedTranslator;
 
 public class SV2V {
+    static final long DEFAULT_CACHE_MB = 256;
+
+    @SuppressWarnings("try")
     public static void main(String[] args) throws Exception {
-        Registers.SetRiscVregs();
-        InputStream in = System.in;
-        new SparrowParser(in);
-        Node root = SparrowParser.Program();
-        SparrowVConstructor constructor = new SparrowVConstructor();
-        root.accept(constructor);
-        Program program = constructor.getProgram();
-
-        RiscVTranslateVisitor rvt = new RiscVTranslateVisitor();
-        String riscv_translation = rvt.visit(program);
+        List<String> options = Arrays.asList(args);
+        String load_ir_path = get_option_value(options, "-load-ir=");
+        String input_path = get_option_value(options, "-in=");
+        String cache_dir = get_option_value(options, "-cache=");
+        String options_key = String.join(" ", get_translation_options(options));
+        PhaseMetrics metrics = PhaseMetrics.from_options(options);
+        Writer frame_report = open_frame_report(options);
+        PassManager pass_manager = null;
+        try {
+            pass_manager = PassManager.from_options(options, metrics);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        String server_address = get_option_value(options, "-server=");
+        if (server_address != null) {
+            serve(options, server_address);
+            return;
+        }
+
+        // caching and writing IR need the whole program; otherwise each function can be written out as soon as it is parsed
+        boolean streaming = options.contains("-stream") || options.contains("-pipeline");
+        if (streaming && cache_dir == null && load_ir_path == null && get_option_value(options, "-emit-ir=") == null) {
+            try {
+                translate_streaming(options, input_path, metrics, frame_report, pass_manager);
+            } catch (InvalidProgramException e) {
+                reject(e);
+            }
+            close_frame_report(options, frame_report);
+            metrics.print_report();
+            return;
+        }
+
+        // with a cache, the whole input is hashed first: an unchanged input needs no parsing at all
+        CompilationCache cache = null;
+        String program_key = null;
+        byte[] input = null;
+        if (cache_dir != null) {
+            String cache_mb = get_option_value(options, "-cache-size=");
+            long max_bytes = (cache_mb == null ? DEFAULT_CACHE_MB : Long.parseLong(cache_mb)) * 1024 * 1024;
+            cache = new CompilationCache(Paths.get(cache_dir), max_bytes);
+
+            if (load_ir_path != null) input = Files.readAllBytes(Paths.get(load_ir_path));
+            else if (input_path != null) input = Files.readAllBytes(Paths.get(input_path));
+            else input = System.in.readAllBytes();
+            program_key = "program-" + CompilationCache.hash(CompilationCache.CACHE_VERSION.getBytes(), options_key.getBytes(), input);
+            // the frame report and the IR dump describe the program itself, so with either of them it is still parsed and
+            // laid out, and only the per-function cache applies
+            boolean reports_program = frame_report != null || get_option_value(options, "-dump-ir") != null;
+            String cached_translation = reports_program ? null : cache.get(program_key);
+            if (cached_translation != null) {
+                metrics.count_output(cached_translation);
+                System.out.println(cached_translation);
+                System.err.println("Compilation cache: program hit");
+                if (pass_manager != null || options.contains("-spill-elim") || options.contains("-dce")) {
+                    System.err.println("Compilation cache: no passes run and no pass reports, the program came from the cache");
+                }
+                metrics.print_report();
+                return;
+            }
+        }
+
+        Program program;
+        if (load_ir_path != null) {
+            try (PhaseMetrics.Timer t = metrics.start("load-ir")) {
+                program = input != null ? new SparrowVBinaryReader(ByteBuffer.wrap(input)).readProgram()
+                                        : SparrowVBinaryReader.read(Paths.get(load_ir_path));
+            }
+        } else if (input_path != null && input == null) {
+            // lexed straight out of a memory mapping of the file, a window at a time
+            try (MappedFileLexer lexer = new MappedFileLexer(Paths.get(input_path));
+                 PhaseMetrics.Timer t = metrics.start("direct-parse")) {
+                program = new DirectParser<>(lexer, new SparrowVBuilder()).Program();
+            }
+        } else if (input_path != null || (options.contains("-direct-parse") && options.contains("-byte-lexer"))) {
+            byte[] text = input != null ? input : System.in.readAllBytes();
+            try (PhaseMetrics.Timer t = metrics.start("direct-parse")) {
+                program = new DirectParser<>(new ByteLexer(text), new SparrowVBuilder()).Program();
+            }
+        } else if (options.contains("-direct-parse")) {
+            InputStream in = input != null ? new ByteArrayInputStream(input) : System.in;
+            try (PhaseMetrics.Timer t = metrics.start("direct-parse")) {
+                program = new DirectParser<>(new JavaCCTokenSource(in), new SparrowVBuilder()).Program();
+            }
+        } else {
+            InputStream in = input != null ? new ByteArrayInputStream(input) : System.in;
+            Node root;
+            try (PhaseMetrics.Timer t = metrics.start("parse")) {
+                new SparrowParser(in);
+                root = SparrowParser.Program();
+            }
+            SparrowVConstructor constructor = new SparrowVConstructor(false);
+            try (PhaseMetrics.Timer t = metrics.start("construct")) {
+                root.accept(constructor);
+                program = constructor.getProgram();
+            }
+            try (PhaseMetrics.Timer t = metrics.start("set-parents")) {
+                program.accept(new SetParents());
+            }
+        }
+        count_program(program, metrics);
+
+        if (!options.contains("-no-validate")) {
+            try (PhaseMetrics.Timer t = metrics.start("validate")) {
+                program.accept(new ValidatorVisitor());
+            } catch (InvalidProgramException e) {
+                reject(e);
+            }
+        }
+
+        String emit_ir_path = get_option_value(options, "-emit-ir=");
+        if (emit_ir_path != null) {
+            try (OutputStream ir_out = new BufferedOutputStream(new FileOutputStream(emit_ir_path))) {
+                new BinaryWriterVisitor().write(program, ir_out);
+            }
+        }
+
+        if (options.contains("-spill-elim")) {
+            SpillReloadEliminationVisitor spill_elim = new SpillReloadEliminationVisitor();
+            try (PhaseMetrics.Timer t = metrics.start("spill-elim")) {
+                program.accept(spill_elim);
+            }
+            spill_elim.print_elimination_report();
+        }
+        if (options.contains("-dce")) {
+            DeadCodeEliminationVisitor dce = new DeadCodeEliminationVisitor(options.contains("-flat-ir"));
+            try (PhaseMetrics.Timer t = metrics.start("dce")) {
+                program.accept(dce);
+            }
+            dce.print_elimination_report();
+        }
+        if (pass_manager != null) {
+            try {
+                pass_manager.run(program);
+            } catch (InvalidProgramException e) {
+                reject(e);
+            }
+            pass_manager.print_report();
+        }
+
+        dump_ir(options, program);
+
+        RiscVTranslateVisitor rvt = new RiscVTranslateVisitor(CodegenOptions.from_options(options));
+        String riscv_translation;
+        if (cache == null) {
+            riscv_translation = translate(rvt, program, metrics);
+        } else {
+            riscv_translation = translate_with_cache(rvt, program, cache, options_key, metrics);
+            cache.put(program_key, riscv_translation);
+            cache.trim();
+            System.err.println("Compilation cache: " + cache.hits + " hits, " + cache.misses + " misses");
+        }
+        metrics.count_output(riscv_translation);
         System.out.println(riscv_translation);
-        // System.err.println(program.toString());
+        if (frame_report != null) rvt.write_frame_report(frame_report);
+        close_frame_report(options, frame_report);
+        metrics.print_report();
+    }
+
+    // same output as rvt.visit(program), with frame layout and emission timed separately
+    @SuppressWarnings("try")
+    static String translate(RiscVTranslateVisitor rvt, Program program, PhaseMetrics metrics) {
+        StringBuilder riscv_translation = new StringBuilder();
+
+        try (PhaseMetrics.Timer t = metrics.start("frame-layout")) {
+            rvt.generate_frame_data(program);
+        }
+        try (PhaseMetrics.Timer t = metrics.start("translate")) {
+            riscv_translation.append(rvt.program_header());
+            for (FunctionDecl fd : program.funDecls) {
+                riscv_translation.append(fd.accept(rvt));
+            }
+            riscv_translation.append(rvt.program_footer());
+        }
+        return riscv_translation.toString();
+    }
+
+    static void count_program(Program program, PhaseMetrics metrics) {
+        for (FunctionDecl fd : program.funDecls) count_function(fd, metrics);
+    }
+
+    static void count_function(FunctionDecl fd, PhaseMetrics metrics) {
+        metrics.count("functions", 1);
+        metrics.count("instructions", fd.block.instructions.size());
+    }
+
+    // parse, lay out, translate and write out one function at a time, so memory is bounded by the largest function
+    // the functions before an invalid one are already on stdout when it fails, so with a non-zero exit stdout is
+    // incomplete and must be thrown away; buffering it until the end would give up the bounded memory
+    @SuppressWarnings("try")
+    static void translate_streaming(List<String> options, String input_path, PhaseMetrics metrics, Writer frame_report, PassManager pass_manager) throws Exception {
+        TokenSource tokens;
+        if (input_path != null) tokens = new MappedFileLexer(Paths.get(input_path));
+        else if (options.contains("-byte-lexer")) tokens = new ByteLexer(System.in.readAllBytes());
+        else tokens = new JavaCCTokenSource(System.in);
+
+        SpillReloadEliminationVisitor spill_elim = options.contains("-spill-elim") ? new SpillReloadEliminationVisitor() : null;
+        DeadCodeEliminationVisitor dce = options.contains("-dce") ? new DeadCodeEliminationVisitor(options.contains("-flat-ir")) : null;
+        ValidatorVisitor validator = options.contains("-no-validate") ? null : new ValidatorVisitor();
+        List<DepthFirst> passes = new ArrayList<>();
+        if (validator != null) passes.add(validator);
+        if (spill_elim != null) passes.add(spill_elim);
+        if (dce != null) passes.add(dce);
+        if (pass_manager != null) passes.add(pass_manager.as_function_pass());
+        CodegenOptions codegen_options = CodegenOptions.from_options(options);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+
+        try {
+            if (options.contains("-pipeline")) {
+                new PipelinedTranslator(tokens, passes, out, PipelinedTranslator.DEFAULT_QUEUE_CAPACITY, metrics, frame_report, codegen_options).run();
+            } else {
+                DirectParser<Program, FunctionDecl, Instruction> parser = new DirectParser<>(tokens, new SparrowVBuilder());
+                RiscVTranslateVisitor rvt = new RiscVTranslateVisitor(codegen_options);
+                write_output(out, rvt.program_header(), metrics);
+
+                while (true) {
+                    FunctionDecl fd;
+                    try (PhaseMetrics.Timer t = metrics.start("direct-parse")) {
+                        fd = parser.NextFunction();
+                    }
+                    if (fd == null) break;
+                    count_function(fd, metrics);
+
+                    try (PhaseMetrics.Timer t = metrics.start("passes")) {
+                        for (DepthFirst pass : passes) fd.accept(pass);
+                    }
+                    FrameDataVisitor frame_data = new FrameDataVisitor(codegen_options);
+                    try (PhaseMetrics.Timer t = metrics.start("frame-layout")) {
+                        frame_data.generate_frame_data(fd);
+                    }
+                    if (frame_report != null) frame_data.write_frame_report(frame_report);
+                    String function_translation;
+                    try (PhaseMetrics.Timer t = metrics.start("translate")) {
+                        function_translation = rvt.translate_function(fd, frame_data);
+                    }
+                    write_output(out, function_translation, metrics);
+                }
+                write_output(out, rvt.program_footer(), metrics);
+            }
+            out.write(System.lineSeparator());
+            if (validator != null) validator.finish();
+        } finally {
+            out.flush();
+            if (tokens instanceof MappedFileLexer) ((MappedFileLexer) tokens).close();
+        }
+
+        if (spill_elim != null) spill_elim.print_elimination_report();
+        if (dce != null) dce.print_elimination_report();
+        if (pass_manager != null) pass_manager.print_report();
+    }
+
+    static void write_output(Writer out, String assembly, PhaseMetrics metrics) throws Exception {
+        metrics.count_output(assembly);
+        out.write(assembly);
+    }
+
+    // reuse the emitted code of every function whose (optimized) body is unchanged, translate the rest
+    @SuppressWarnings("try")
+    static String translate_with_cache(RiscVTranslateVisitor rvt, Program program, CompilationCache cache, String options_key, PhaseMetrics metrics) throws Exception {
+        StringBuilder riscv_translation = new StringBuilder();
+
+        try (PhaseMetrics.Timer t = metrics.start("frame-layout")) {
+            rvt.generate_frame_data(program);
+        }
+        riscv_translation.append(rvt.program_header());
+        for (FunctionDecl fd : program.funDecls) {
+            String function_key = "function-" + CompilationCache.hash(CompilationCache.CACHE_VERSION, options_key, fd.toString());
+            String function_translation = cache.get(function_key);
+
+            if (function_translation == null) {
+                try (PhaseMetrics.Timer t = metrics.start("translate")) {
+                    function_translation = fd.accept(rvt);
+                }
+                cache.put(function_key, function_translation);
+            }
+            riscv_translation.append(function_translation);
+        }
+        riscv_translation.append(rvt.program_footer());
+        return riscv_translation.toString();
+    }
+
+    // malformed input never reaches code generation
+    static void reject(InvalidProgramException e) {
+        System.out.flush();
+        System.err.println(e.getMessage());
+        System.exit(1);
+    }
+
+    // answer compile requests until killed, see sv2v.CompileServer for the protocol
+    @SuppressWarnings("try")    // the shutdown hook closes the server from another thread
+    static void serve(List<String> options, String server_address) throws Exception {
+        String worker_count = get_option_value(options, "-workers=");
+        String timeout_ms = get_option_value(options, "-timeout-ms=");
+        String max_source_mb = get_option_value(options, "-max-source-mb=");
+        Compiler compiler = new Compiler(
+            worker_count == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(worker_count),
+            get_translation_options(options),
+            timeout_ms == null ? 0 : Long.parseLong(timeout_ms));
+
+        int max_source_bytes = max_source_mb == null ? CompileServer.DEFAULT_MAX_SOURCE_BYTES
+                                                     : (int) Math.min(Long.parseLong(max_source_mb) << 20, Integer.MAX_VALUE);
+        try (CompileServer server = new CompileServer(CompileServer.parse_address(server_address), compiler, max_source_bytes)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (Exception e) {
+                    // exiting anyway
+                }
+            }));
+            System.err.println("SV2V compile server listening on " + server.local_address());
+            server.serve();
+        } finally {
+            compiler.close();
+        }
+    }
+
+    // -frame-report writes the frame layout of every function to stderr, -frame-report=<file> to a file
+    static Writer open_frame_report(List<String> options) throws Exception {
+        String report_path = get_option_value(options, "-frame-report=");
+        if (report_path != null) return Files.newBufferedWriter(Paths.get(report_path));
+        if (options.contains("-frame-report")) return new BufferedWriter(new OutputStreamWriter(System.err));
+        return null;
+    }
+
+    static void close_frame_report(List<String> options, Writer frame_report) throws Exception {
+        if (frame_report == null) return;
+        if (get_option_value(options, "-frame-report=") != null) frame_report.close();
+        else frame_report.flush();   // stderr stays open for the other reports
+    }
+
+    // -dump-ir prints the program as the passes left it to stderr, -dump-ir=<file> to a file
+    static void dump_ir(List<String> options, Program program) throws Exception {
+        String dump_path = get_option_value(options, "-dump-ir=");
+        if (dump_path != null) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(dump_path))) {
+                PrintVisitor.print(program, out);
+            }
+        } else if (options.contains("-dump-ir")) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.err));
+            PrintVisitor.print(program, out);
+            out.flush();
+        }
+    }
+
+    // value of an option written as name=value, e.g. -load-ir=prog.svb
+    static String get_option_value(List<String> options, String name) {
+        for (String option : options) {
+            if (option.startsWith(name)) return option.substring(name.length());
+        }
+        return null;
+    }
+
+    // the options that change the emitted code, in a canonical order
+    static List<String> get_translation_options(List<String> options) {
+        List<String> translation_options = new ArrayList<>();
+        for (String option : options) {
+            if (option.startsWith("-cache") || option.startsWith("-emit-ir=") || option.startsWith("-load-ir=")) continue;
+            if (option.equals("-direct-parse") || option.equals("-byte-lexer") || option.startsWith("-in=") || option.equals("-stream") || option.equals("-pipeline")) continue;
+            if (option.equals(PhaseMetrics.OPTION) || option.startsWith("-frame-report") || option.startsWith("-dump-ir")) continue;
+            if (option.startsWith("-server=") || option.startsWith("-workers=") || option.startsWith("-timeout-ms=") || option.startsWith("-max-source-mb=")) continue;
+            if (option.equals(PassManager.VERIFY_OPTION) || option.startsWith(PassManager.THREADS_OPTION)) continue;
+            translation_options.add(option);
+        }
+        Collections.sort(translation_options);
+        return translation_options;
     }
 }
 
@@ -30,6 +426,33 @@ public class SV2V {
 
 // run translation
 // java SV2V < test.sparrowv > test.riscv 2> err.txt
+// java SV2V -dce < test.sparrowv > test.riscv 2> err.txt     (dead code elimination, report on stderr)
+// java SV2V -dce -flat-ir < test.sparrowv > test.riscv      (the same dce, with its liveness run over the struct-of-arrays FlatBlock form)
+// java SV2V -spill-elim < test.sparrowv > test.riscv 2> err.txt     (redundant reload/store elimination, report on stderr)
+// java SV2V -passes=spill-elim,dce < test.sparrowv > test.riscv   (run passes in this order with per-pass time and instruction counts on stderr;
+//                                                                     -verify-passes validates after each, -pass-threads=<n> bounds function-parallel passes)
+// java SV2V -passes=check-elim,dce < test.sparrowv > test.riscv  (drop null/bounds checks that cannot fail, then the error blocks they guarded)
+// java SV2V -emit-ir=test.svb < test.sparrowv > test.riscv        (also cache the parsed program in binary form)
+// java SV2V -load-ir=test.svb > test.riscv                         (translate a cached program without parsing)
+// java SV2V -direct-parse < test.sparrowv > test.riscv              (build sparrowv straight from the parser, no syntax tree)
+// java SV2V -direct-parse -byte-lexer < test.sparrowv > test.riscv  (same, lexing the raw bytes instead of going through JavaCharStream)
+// java SV2V -in=test.sparrowv > test.riscv                         (memory map the file and lex it in place, for very large inputs)
+// java SV2V -stream -in=test.sparrowv > test.riscv                 (write each function out as soon as it is parsed, without building the whole program)
+// java SV2V -pipeline -in=test.sparrowv > test.riscv               (same, with parsing, frame layout and emission on separate threads)
+//                                                                   (with -stream or -pipeline, a non-zero exit leaves partial output on stdout)
+// java SV2V -metrics < test.sparrowv > test.riscv 2> metrics.json  (per-phase wall/cpu time and allocation as JSON, or -Dsv2v.metrics=true)
+// java -XX:StartFlightRecording=filename=sv2v.jfr SV2V < test.sparrowv > test.riscv   (sv2v.Phase / sv2v.FunctionTranslation events for JMC)
+// java SV2V -frame-report=frames.jsonl < test.sparrowv > test.riscv  (frame size, arg size and slot offsets per function, one JSON object per line; -frame-report for stderr)
+// java SV2V -server=unix:/tmp/sv2v.sock -workers=4 -timeout-ms=10000 -dce   (compile server, or -server=tcp:7878 on loopback)
+// java SV2V -server=tcp:7878 -max-source-mb=16                     (reject compile requests over 16 MB, default 64)
+// java SV2V -dce -dump-ir=after.sparrowv < test.sparrowv > test.riscv   (the sparrowv program after the passes; -dump-ir for stderr)
+// java SV2V -tail-calls < test.sparrowv > test.riscv              (a call whose result is returned right away jumps to the callee in the caller's frame)
+// java SV2V -static-args < test.sparrowv > test.riscv             (callers reserve one argument area in their frame instead of moving sp around every call)
+// java SV2V -inline-runtime < test.sparrowv > test.riscv          (print and alloc make their ecall in place instead of calling the runtime stubs)
+// java SV2V -strength-reduce < test.sparrowv > test.riscv         (a multiply by a constant loaded earlier in straight-line code is done with shifts and adds)
+// java SV2V -bump-alloc < test.sparrowv > test.riscv              (alloc is an inline pointer bump, with one sbrk ecall per 64 KB chunk instead of per object)
+// java SV2V -no-validate < test.sparrowv > test.riscv             (skip the ErrorReport checks that otherwise reject malformed input with exit code 1)
+// java SV2V -cache=.sv2v-cache -cache-size=256 < test.sparrowv > test.riscv   (reuse output of unchanged inputs/functions, LRU limit in MB)
 
 // run RISCV
 // java -jar ../../../misc/venus.jar < test.riscv
\ No newline at end of file
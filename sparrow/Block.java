@@ -3,6 +3,7 @@ package sparrow;
 import IR.token.Identifier;
 import sparrow.visitor.ArgRetVisitor;
 import sparrow.visitor.ArgVisitor;
+import sparrow.visitor.PrintVisitor;
 import sparrow.visitor.RetVisitor;
 import sparrow.visitor.Visitor;
 
@@ -38,11 +39,8 @@ public class Block {
   }
 
   public String toString() {
-    String res = "";
-    for (Instruction li: instructions) {
-      res = res + li.toString() + "\n";
-    }
-    res = res + "      return " + return_id;
-    return res;
+    StringBuilder res = new StringBuilder();
+    accept(new PrintVisitor(res));
+    return res.toString();
   }
 }
@@ -0,0 +1,211 @@
+package sparrow.visitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import IR.binary.BinaryEncoder;
+import IR.token.Identifier;
+import sparrow.*;
+
+// serializes a sparrow Program into the compact binary format read back by IR.binary.SparrowBinaryReader
+public class BinaryWriterVisitor implements Visitor {
+  public static final int MAGIC = 0x53504231;  // "SPB1"
+
+  public static final int OP_LABEL = 0;
+  public static final int OP_MOVE_ID_INTEGER = 1;
+  public static final int OP_MOVE_ID_FUNCNAME = 2;
+  public static final int OP_ADD = 3;
+  public static final int OP_SUBTRACT = 4;
+  public static final int OP_MULTIPLY = 5;
+  public static final int OP_LESSTHAN = 6;
+  public static final int OP_LOAD = 7;
+  public static final int OP_STORE = 8;
+  public static final int OP_MOVE_ID_ID = 9;
+  public static final int OP_ALLOC = 10;
+  public static final int OP_PRINT = 11;
+  public static final int OP_ERROR = 12;
+  public static final int OP_GOTO = 13;
+  public static final int OP_IFGOTO = 14;
+  public static final int OP_CALL = 15;
+
+  BinaryEncoder out = new BinaryEncoder();
+
+  public void write(Program program, OutputStream stream) throws IOException {
+    out = new BinaryEncoder();
+    program.accept(this);
+    out.writeTo(stream, MAGIC);
+  }
+
+  void symbol(Object token) {
+    out.writeSymbol(token.toString());
+  }
+
+  /*   List<FunctionDecl> funDecls; */
+  public void visit(Program n) {
+    out.writeVarInt(n.funDecls.size());
+    for (FunctionDecl fd: n.funDecls) {
+        fd.accept(this);
+    }
+  }
+
+  /*   Program parent;
+   *   FunctionName functionName;
+   *   List<Identifier> formalParameters;
+   *   Block block; */
+  public void visit(FunctionDecl n) {
+    symbol(n.functionName);
+    out.writeVarInt(n.formalParameters.size());
+    for (Identifier fp: n.formalParameters) {
+        symbol(fp);
+    }
+    n.block.accept(this);
+  }
+
+  /*   FunctionDecl parent;
+   *   List<Instruction> instructions;
+   *   Identifier return_id; */
+  public void visit(Block n) {
+    out.writeVarInt(n.instructions.size());
+    for (Instruction i: n.instructions) {
+        i.accept(this);
+    }
+    symbol(n.return_id);
+  }
+
+  /*   Label label; */
+  public void visit(LabelInstr n) {
+    out.writeVarInt(OP_LABEL);
+    symbol(n.label);
+  }
+
+  /*   Identifier lhs;
+   *   int rhs; */
+  public void visit(Move_Id_Integer n) {
+    out.writeVarInt(OP_MOVE_ID_INTEGER);
+    symbol(n.lhs);
+    out.writeSignedVarInt(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   FunctionName rhs; */
+  public void visit(Move_Id_FuncName n) {
+    out.writeVarInt(OP_MOVE_ID_FUNCNAME);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier arg1;
+   *   Identifier arg2; */
+  public void visit(Add n) {
+    out.writeVarInt(OP_ADD);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier arg1;
+   *   Identifier arg2; */
+  public void visit(Subtract n) {
+    out.writeVarInt(OP_SUBTRACT);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier arg1;
+   *   Identifier arg2; */
+  public void visit(Multiply n) {
+    out.writeVarInt(OP_MULTIPLY);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier arg1;
+   *   Identifier arg2; */
+  public void visit(LessThan n) {
+    out.writeVarInt(OP_LESSTHAN);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier base;
+   *   int offset; */
+  public void visit(Load n) {
+    out.writeVarInt(OP_LOAD);
+    symbol(n.lhs);
+    symbol(n.base);
+    out.writeSignedVarInt(n.offset);
+  }
+
+  /*   Identifier base;
+   *   int offset;
+   *   Identifier rhs; */
+  public void visit(Store n) {
+    out.writeVarInt(OP_STORE);
+    symbol(n.base);
+    out.writeSignedVarInt(n.offset);
+    symbol(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier rhs; */
+  public void visit(Move_Id_Id n) {
+    out.writeVarInt(OP_MOVE_ID_ID);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier size; */
+  public void visit(Alloc n) {
+    out.writeVarInt(OP_ALLOC);
+    symbol(n.lhs);
+    symbol(n.size);
+  }
+
+  /*   Identifier content; */
+  public void visit(Print n) {
+    out.writeVarInt(OP_PRINT);
+    symbol(n.content);
+  }
+
+  /*   String msg; */
+  public void visit(ErrorMessage n) {
+    out.writeVarInt(OP_ERROR);
+    symbol(n.msg);
+  }
+
+  /*   Label label; */
+  public void visit(Goto n) {
+    out.writeVarInt(OP_GOTO);
+    symbol(n.label);
+  }
+
+  /*   Identifier condition;
+   *   Label label; */
+  public void visit(IfGoto n) {
+    out.writeVarInt(OP_IFGOTO);
+    symbol(n.condition);
+    symbol(n.label);
+  }
+
+  /*   Identifier lhs;
+   *   Identifier callee;
+   *   List<Identifier> args; */
+  public void visit(Call n) {
+    out.writeVarInt(OP_CALL);
+    symbol(n.lhs);
+    symbol(n.callee);
+    out.writeVarInt(n.args.size());
+    for (Identifier arg: n.args) {
+        symbol(arg);
+    }
+  }
+}
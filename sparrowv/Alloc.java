@@ -11,6 +11,7 @@ public class Alloc extends Instruction {
   public Register size;
 
   public Alloc(Register lhs, Register size) {
+    super(Opcodes.OP_ALLOC);
     this.lhs = lhs;
     this.size = size;
   }
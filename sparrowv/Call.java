@@ -4,6 +4,7 @@ import IR.token.Identifier;
 import IR.token.Register;
 import sparrowv.visitor.ArgRetVisitor;
 import sparrowv.visitor.ArgVisitor;
+import sparrowv.visitor.PrintVisitor;
 import sparrowv.visitor.RetVisitor;
 import sparrowv.visitor.Visitor;
 
@@ -15,6 +16,7 @@ public class Call extends Instruction {
   public List<Identifier> args;
 
   public Call(Register lhs, Register callee, List<Identifier> args) {
+    super(Opcodes.OP_CALL);
     this.lhs = lhs ;
     this.callee = callee;
     this.args = args;
@@ -37,15 +39,8 @@ public class Call extends Instruction {
   }
 
   public String toString() {
-    String res = lhs + " = call " + callee + "(";
-    String s = "";
-    for (Identifier param: args) {
-      s = s + param + " ";
-    }
-    if (!(s.equals(""))) {
-       res = res + s.subSequence(0,s.length()-1);
-    }
-    res = res + ")";
-    return res;
+    StringBuilder res = new StringBuilder();
+    accept(new PrintVisitor(res));
+    return res.toString();
   }
 }
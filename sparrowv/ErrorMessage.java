@@ -9,6 +9,7 @@ public class ErrorMessage extends Instruction {
   public String msg;
 
   public ErrorMessage(String msg) {
+    super(Opcodes.OP_ERROR);
     this.msg = msg;
   }
 
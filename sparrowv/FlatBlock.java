@@ -0,0 +1,312 @@
+package sparrowv;
+
+import IR.token.FunctionName;
+import IR.token.Identifier;
+import IR.token.Label;
+import IR.token.Register;
+import sparrowv.visitor.Visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static sparrowv.Opcodes.*;
+
+// struct-of-arrays form of a Block, for passes that want to scan instructions without objects or accept() calls
+// (DeadCodeEliminationVisitor runs its liveness on it under -flat-ir)
+//
+// Instruction i is opcode[i] (the Opcodes constants) with operands dest[i], src1[i], src2[i] and imm[i].
+// Registers, identifiers, labels, function names and error messages are ids into symbols; operands an opcode does
+// not use are -1.
+//   OP_LABEL              dest = label
+//   OP_MOVE_REG_INTEGER   dest = reg, imm = value
+//   OP_MOVE_REG_FUNCNAME  dest = reg, src1 = function name
+//   OP_ADD .. OP_LESSTHAN dest = reg, src1 = reg, src2 = reg
+//   OP_LOAD               dest = reg, src1 = base, imm = offset
+//   OP_STORE              src1 = base, src2 = reg, imm = offset
+//   OP_MOVE_REG_REG       dest = reg, src1 = reg
+//   OP_MOVE_ID_REG        dest = id, src1 = reg
+//   OP_MOVE_REG_ID        dest = reg, src1 = id
+//   OP_ALLOC              dest = reg, src1 = size
+//   OP_PRINT              src1 = reg
+//   OP_ERROR              imm = message
+//   OP_GOTO               src1 = label
+//   OP_IFGOTO             src1 = condition, src2 = label
+//   OP_CALL               dest = reg, src1 = callee, imm = first argument in args, src2 = argument count
+public class FlatBlock {
+  public int size;
+  public int[] opcode;
+  public int[] dest;
+  public int[] src1;
+  public int[] src2;
+  public int[] imm;
+
+  public int[] args;          // identifier ids of all call arguments, back to back
+  public int argsSize;
+
+  public List<String> symbols = new ArrayList<String>();
+  HashMap<String, Integer> symbolIds = new HashMap<String, Integer>();
+
+  public int return_id;
+
+  public FlatBlock(int capacity) {
+    capacity = Math.max(capacity, 4);
+    opcode = new int[capacity];
+    dest = new int[capacity];
+    src1 = new int[capacity];
+    src2 = new int[capacity];
+    imm = new int[capacity];
+    args = new int[4];
+  }
+
+  public static FlatBlock encode(Block block) {
+    FlatBlock flat = new FlatBlock(block.instructions.size());
+    Encoder encoder = flat.new Encoder();
+    for (Instruction i : block.instructions) {
+      i.accept(encoder);
+    }
+    flat.return_id = flat.symbol(block.return_id.toString());
+    return flat;
+  }
+
+  public int symbol(String name) {
+    Integer id = symbolIds.get(name);
+    if (id == null) {
+      id = symbols.size();
+      symbols.add(name);
+      symbolIds.put(name, id);
+    }
+    return id;
+  }
+
+  public int add(int op, int d, int s1, int s2, int immediate) {
+    if (size == opcode.length) {
+      int capacity = size * 2;
+      opcode = Arrays.copyOf(opcode, capacity);
+      dest = Arrays.copyOf(dest, capacity);
+      src1 = Arrays.copyOf(src1, capacity);
+      src2 = Arrays.copyOf(src2, capacity);
+      imm = Arrays.copyOf(imm, capacity);
+    }
+    opcode[size] = op;
+    dest[size] = d;
+    src1[size] = s1;
+    src2[size] = s2;
+    imm[size] = immediate;
+    return size++;
+  }
+
+  int addArgs(List<Identifier> ids) {
+    int start = argsSize;
+    if (argsSize + ids.size() > args.length) {
+      args = Arrays.copyOf(args, Math.max(args.length * 2, argsSize + ids.size()));
+    }
+    for (Identifier id : ids) {
+      args[argsSize++] = symbol(id.toString());
+    }
+    return start;
+  }
+
+  // register written by instruction i, or -1
+  public int definedRegister(int i) {
+    switch (opcode[i]) {
+      case OP_MOVE_REG_INTEGER: case OP_MOVE_REG_FUNCNAME:
+      case OP_ADD: case OP_SUBTRACT: case OP_MULTIPLY: case OP_LESSTHAN:
+      case OP_LOAD: case OP_MOVE_REG_REG: case OP_MOVE_REG_ID: case OP_ALLOC: case OP_CALL:
+        return dest[i];
+      default:
+        return -1;
+    }
+  }
+
+  // registers read by instruction i are stored in used, the count is returned
+  // (like UseDefVisitor, a call also reads the argument registers a2-a7, which are not listed here)
+  public int usedRegisters(int i, int[] used) {
+    switch (opcode[i]) {
+      case OP_ADD: case OP_SUBTRACT: case OP_MULTIPLY: case OP_LESSTHAN: case OP_STORE:
+        used[0] = src1[i];
+        used[1] = src2[i];
+        return 2;
+      case OP_LOAD: case OP_MOVE_REG_REG: case OP_MOVE_ID_REG: case OP_ALLOC: case OP_PRINT:
+      case OP_IFGOTO: case OP_CALL:
+        used[0] = src1[i];
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  // back to the object model; token objects are shared per symbol, like the parser's builders do
+  public Block decode() {
+    Register[] registers = new Register[symbols.size()];
+    Identifier[] identifiers = new Identifier[symbols.size()];
+    Label[] labels = new Label[symbols.size()];
+    FunctionName[] functionNames = new FunctionName[symbols.size()];
+    for (int s = 0; s < symbols.size(); s++) {
+      registers[s] = new Register(symbols.get(s));
+      identifiers[s] = new Identifier(symbols.get(s));
+      labels[s] = new Label(symbols.get(s));
+      functionNames[s] = new FunctionName(symbols.get(s));
+    }
+
+    ArrayList<Instruction> instructions = new ArrayList<Instruction>(size);
+    for (int i = 0; i < size; i++) {
+      switch (opcode[i]) {
+        case OP_LABEL:
+          instructions.add(new LabelInstr(labels[dest[i]]));
+          break;
+        case OP_MOVE_REG_INTEGER:
+          instructions.add(new Move_Reg_Integer(registers[dest[i]], imm[i]));
+          break;
+        case OP_MOVE_REG_FUNCNAME:
+          instructions.add(new Move_Reg_FuncName(registers[dest[i]], functionNames[src1[i]]));
+          break;
+        case OP_ADD:
+          instructions.add(new Add(registers[dest[i]], registers[src1[i]], registers[src2[i]]));
+          break;
+        case OP_SUBTRACT:
+          instructions.add(new Subtract(registers[dest[i]], registers[src1[i]], registers[src2[i]]));
+          break;
+        case OP_MULTIPLY:
+          instructions.add(new Multiply(registers[dest[i]], registers[src1[i]], registers[src2[i]]));
+          break;
+        case OP_LESSTHAN:
+          instructions.add(new LessThan(registers[dest[i]], registers[src1[i]], registers[src2[i]]));
+          break;
+        case OP_LOAD:
+          instructions.add(new Load(registers[dest[i]], registers[src1[i]], imm[i]));
+          break;
+        case OP_STORE:
+          instructions.add(new Store(registers[src1[i]], imm[i], registers[src2[i]]));
+          break;
+        case OP_MOVE_REG_REG:
+          instructions.add(new Move_Reg_Reg(registers[dest[i]], registers[src1[i]]));
+          break;
+        case OP_MOVE_ID_REG:
+          instructions.add(new Move_Id_Reg(identifiers[dest[i]], registers[src1[i]]));
+          break;
+        case OP_MOVE_REG_ID:
+          instructions.add(new Move_Reg_Id(registers[dest[i]], identifiers[src1[i]]));
+          break;
+        case OP_ALLOC:
+          instructions.add(new Alloc(registers[dest[i]], registers[src1[i]]));
+          break;
+        case OP_PRINT:
+          instructions.add(new Print(registers[src1[i]]));
+          break;
+        case OP_ERROR:
+          instructions.add(new ErrorMessage(symbols.get(imm[i])));
+          break;
+        case OP_GOTO:
+          instructions.add(new Goto(labels[src1[i]]));
+          break;
+        case OP_IFGOTO:
+          instructions.add(new IfGoto(registers[src1[i]], labels[src2[i]]));
+          break;
+        case OP_CALL: {
+          ArrayList<Identifier> callArgs = new ArrayList<Identifier>(src2[i]);
+          for (int a = imm[i]; a < imm[i] + src2[i]; a++) {
+            callArgs.add(identifiers[args[a]]);
+          }
+          instructions.add(new Call(registers[dest[i]], registers[src1[i]], callArgs));
+          break;
+        }
+        default:
+          throw new IllegalStateException("unknown opcode " + opcode[i]);
+      }
+    }
+
+    Block block = new Block(instructions, identifiers[return_id]);
+    for (Instruction instr : instructions) {
+      instr.parent = block;
+    }
+    return block;
+  }
+
+  // appends each visited instruction to this block
+  class Encoder implements Visitor {
+    int sym(Object token) {
+      return symbol(token.toString());
+    }
+
+    public void visit(Program n) { }
+
+    public void visit(FunctionDecl n) { }
+
+    public void visit(Block n) { }
+
+    public void visit(LabelInstr n) {
+      add(OP_LABEL, sym(n.label), -1, -1, 0);
+    }
+
+    public void visit(Move_Reg_Integer n) {
+      add(OP_MOVE_REG_INTEGER, sym(n.lhs), -1, -1, n.rhs);
+    }
+
+    public void visit(Move_Reg_FuncName n) {
+      add(OP_MOVE_REG_FUNCNAME, sym(n.lhs), sym(n.rhs), -1, 0);
+    }
+
+    public void visit(Add n) {
+      add(OP_ADD, sym(n.lhs), sym(n.arg1), sym(n.arg2), 0);
+    }
+
+    public void visit(Subtract n) {
+      add(OP_SUBTRACT, sym(n.lhs), sym(n.arg1), sym(n.arg2), 0);
+    }
+
+    public void visit(Multiply n) {
+      add(OP_MULTIPLY, sym(n.lhs), sym(n.arg1), sym(n.arg2), 0);
+    }
+
+    public void visit(LessThan n) {
+      add(OP_LESSTHAN, sym(n.lhs), sym(n.arg1), sym(n.arg2), 0);
+    }
+
+    public void visit(Load n) {
+      add(OP_LOAD, sym(n.lhs), sym(n.base), -1, n.offset);
+    }
+
+    public void visit(Store n) {
+      add(OP_STORE, -1, sym(n.base), sym(n.rhs), n.offset);
+    }
+
+    public void visit(Move_Reg_Reg n) {
+      add(OP_MOVE_REG_REG, sym(n.lhs), sym(n.rhs), -1, 0);
+    }
+
+    public void visit(Move_Id_Reg n) {
+      add(OP_MOVE_ID_REG, sym(n.lhs), sym(n.rhs), -1, 0);
+    }
+
+    public void visit(Move_Reg_Id n) {
+      add(OP_MOVE_REG_ID, sym(n.lhs), sym(n.rhs), -1, 0);
+    }
+
+    public void visit(Alloc n) {
+      add(OP_ALLOC, sym(n.lhs), sym(n.size), -1, 0);
+    }
+
+    public void visit(Print n) {
+      add(OP_PRINT, -1, sym(n.content), -1, 0);
+    }
+
+    public void visit(ErrorMessage n) {
+      add(OP_ERROR, -1, -1, -1, symbol(n.msg));
+    }
+
+    public void visit(Goto n) {
+      add(OP_GOTO, -1, sym(n.label), -1, 0);
+    }
+
+    public void visit(IfGoto n) {
+      add(OP_IFGOTO, -1, sym(n.condition), sym(n.label), 0);
+    }
+
+    public void visit(Call n) {
+      int start = addArgs(n.args);
+      add(OP_CALL, sym(n.lhs), sym(n.callee), n.args.size(), start);
+    }
+  }
+}
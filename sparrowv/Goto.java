@@ -10,6 +10,7 @@ public class Goto extends Instruction {
   public Label label;
 
   public Goto(Label label) {
+    super(Opcodes.OP_GOTO);
     this.label = label;
   }
 
@@ -12,6 +12,7 @@ public class IfGoto extends Instruction {
   public Label label;
 
   public IfGoto(Register condition, Label label) {
+    super(Opcodes.OP_IFGOTO);
     this.condition = condition;
     this.label = label;
   }
@@ -8,6 +8,13 @@ import sparrowv.visitor.Visitor;
 public abstract class Instruction {
   public Block parent;
 
+  // one of the Opcodes constants, for code that switches on the instruction kind instead of visiting
+  public final int opcode;
+
+  protected Instruction(int opcode) {
+    this.opcode = opcode;
+  }
+
   public abstract void accept(Visitor v);
   public abstract <A> void accept(ArgVisitor<A> v, A arg);
   public abstract <A,R> R accept(ArgRetVisitor<A,R> v, A arg);
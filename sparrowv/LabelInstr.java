@@ -10,6 +10,7 @@ public class LabelInstr extends Instruction {
   public Label label;
 
   public LabelInstr(Label label) {
+    super(Opcodes.OP_LABEL);
     this.label = label;
   }
 
@@ -12,6 +12,7 @@ public class LessThan extends Instruction {
   public Register arg2;
 
   public LessThan(Register lhs, Register arg1, Register arg2) {
+    super(Opcodes.OP_LESSTHAN);
     this.lhs = lhs;
     this.arg1 = arg1;
     this.arg2 = arg2;
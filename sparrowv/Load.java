@@ -12,6 +12,7 @@ public class Load extends Instruction {
   public int offset;
 
   public Load(Register lhs, Register base, int offset) {
+    super(Opcodes.OP_LOAD);
     this.lhs = lhs;
     this.base = base;
     this.offset = offset;
@@ -12,11 +12,13 @@ public class Move_Id_Reg extends Instruction {
   public Register rhs;
 
   public Move_Id_Reg(Identifier lhs, Register rhs) {
+    super(Opcodes.OP_MOVE_ID_REG);
     this.lhs = lhs;
     this.rhs = rhs;
   }
 
   public Move_Id_Reg() {
+    super(Opcodes.OP_MOVE_ID_REG);
   }
 
   public void accept(Visitor v) {
@@ -12,6 +12,7 @@ public class Move_Reg_FuncName extends Instruction {
   public FunctionName rhs;
   
   public Move_Reg_FuncName(Register lhs, FunctionName rhs) {
+    super(Opcodes.OP_MOVE_REG_FUNCNAME);
     this.lhs = lhs;
     this.rhs = rhs;
   }
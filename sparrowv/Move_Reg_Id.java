@@ -12,11 +12,13 @@ public class Move_Reg_Id extends Instruction {
   public Identifier rhs;
 
   public Move_Reg_Id(Register lhs, Identifier rhs) {
+    super(Opcodes.OP_MOVE_REG_ID);
     this.lhs = lhs;
     this.rhs = rhs;
   }
 
   public Move_Reg_Id() {
+    super(Opcodes.OP_MOVE_REG_ID);
   }
 
   public void accept(Visitor v) {
@@ -11,6 +11,7 @@ public class Move_Reg_Integer extends Instruction {
   public int rhs;
   
   public Move_Reg_Integer(Register lhs, int rhs) {
+    super(Opcodes.OP_MOVE_REG_INTEGER);
     this.lhs = lhs;
     this.rhs = rhs;
   }
@@ -11,11 +11,13 @@ public class Move_Reg_Reg extends Instruction {
   public Register rhs;
 
   public Move_Reg_Reg(Register lhs, Register rhs) {
+    super(Opcodes.OP_MOVE_REG_REG);
     this.lhs = lhs;
     this.rhs = rhs;
   }
 
   public Move_Reg_Reg() {
+    super(Opcodes.OP_MOVE_REG_REG);
   }
 
   public void accept(Visitor v) {
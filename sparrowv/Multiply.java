@@ -12,6 +12,7 @@ public class Multiply extends Instruction {
   public Register arg2;
 
   public Multiply(Register lhs, Register arg1, Register arg2) {
+    super(Opcodes.OP_MULTIPLY);
     this.lhs = lhs;
     this.arg1 = arg1;
     this.arg2 = arg2;
@@ -0,0 +1,24 @@
+package sparrowv;
+
+// the kind of each sparrowv instruction, as held in Instruction.opcode
+// these are also the opcodes of the binary format, so existing values must not change
+public class Opcodes {
+  public static final int OP_LABEL = 0;
+  public static final int OP_MOVE_REG_INTEGER = 1;
+  public static final int OP_MOVE_REG_FUNCNAME = 2;
+  public static final int OP_ADD = 3;
+  public static final int OP_SUBTRACT = 4;
+  public static final int OP_MULTIPLY = 5;
+  public static final int OP_LESSTHAN = 6;
+  public static final int OP_LOAD = 7;
+  public static final int OP_STORE = 8;
+  public static final int OP_MOVE_REG_REG = 9;
+  public static final int OP_MOVE_ID_REG = 10;
+  public static final int OP_MOVE_REG_ID = 11;
+  public static final int OP_ALLOC = 12;
+  public static final int OP_PRINT = 13;
+  public static final int OP_ERROR = 14;
+  public static final int OP_GOTO = 15;
+  public static final int OP_IFGOTO = 16;
+  public static final int OP_CALL = 17;
+}
@@ -10,6 +10,7 @@ public class Print extends Instruction {
   public Register content;
 
   public Print(Register content) {
+    super(Opcodes.OP_PRINT);
     this.content = content;
   }
 
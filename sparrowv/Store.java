@@ -12,6 +12,7 @@ public class Store extends Instruction {
   public Register rhs;
 
   public Store(Register base, int offset, Register rhs) {
+    super(Opcodes.OP_STORE);
     this.base = base;
     this.offset = offset;
     this.rhs = rhs;
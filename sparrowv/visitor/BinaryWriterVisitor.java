@@ -0,0 +1,212 @@
+package sparrowv.visitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import IR.binary.BinaryEncoder;
+import IR.token.Identifier;
+import sparrowv.*;
+
+import static sparrowv.Opcodes.*;
+
+// serializes a sparrowv Program into the compact binary format read back by IR.binary.SparrowVBinaryReader
+public class BinaryWriterVisitor implements Visitor {
+  public static final int MAGIC = 0x53564231;  // "SVB1"
+
+  BinaryEncoder out = new BinaryEncoder();
+
+  public void write(Program program, OutputStream stream) throws IOException {
+    out = new BinaryEncoder();
+    program.accept(this);
+    out.writeTo(stream, MAGIC);
+  }
+
+  void symbol(Object token) {
+    out.writeSymbol(token.toString());
+  }
+
+  /*   List<FunctionDecl> funDecls; */
+  public void visit(Program n) {
+    out.writeVarInt(n.funDecls.size());
+    for (FunctionDecl fd: n.funDecls) {
+        fd.accept(this);
+    }
+  }
+
+  /*   Program parent;
+   *   FunctionName functionName;
+   *   List<Identifier> formalParameters;
+   *   Block block; */
+  public void visit(FunctionDecl n) {
+    symbol(n.functionName);
+    out.writeVarInt(n.formalParameters.size());
+    for (Identifier fp: n.formalParameters) {
+        symbol(fp);
+    }
+    n.block.accept(this);
+  }
+
+  /*   FunctionDecl parent;
+   *   List<Instruction> instructions;
+   *   Identifier return_id; */
+  public void visit(Block n) {
+    out.writeVarInt(n.instructions.size());
+    for (Instruction i: n.instructions) {
+        i.accept(this);
+    }
+    symbol(n.return_id);
+  }
+
+  /*   Label label; */
+  public void visit(LabelInstr n) {
+    out.writeVarInt(OP_LABEL);
+    symbol(n.label);
+  }
+
+  /*   Register lhs;
+   *   int rhs; */
+  public void visit(Move_Reg_Integer n) {
+    out.writeVarInt(OP_MOVE_REG_INTEGER);
+    symbol(n.lhs);
+    out.writeSignedVarInt(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   FunctionName rhs; */
+  public void visit(Move_Reg_FuncName n) {
+    out.writeVarInt(OP_MOVE_REG_FUNCNAME);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Add n) {
+    out.writeVarInt(OP_ADD);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Subtract n) {
+    out.writeVarInt(OP_SUBTRACT);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Multiply n) {
+    out.writeVarInt(OP_MULTIPLY);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(LessThan n) {
+    out.writeVarInt(OP_LESSTHAN);
+    symbol(n.lhs);
+    symbol(n.arg1);
+    symbol(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register base;
+   *   int offset; */
+  public void visit(Load n) {
+    out.writeVarInt(OP_LOAD);
+    symbol(n.lhs);
+    symbol(n.base);
+    out.writeSignedVarInt(n.offset);
+  }
+
+  /*   Register base;
+   *   int offset;
+   *   Register rhs; */
+  public void visit(Store n) {
+    out.writeVarInt(OP_STORE);
+    symbol(n.base);
+    out.writeSignedVarInt(n.offset);
+    symbol(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register rhs; */
+  public void visit(Move_Reg_Reg n) {
+    out.writeVarInt(OP_MOVE_REG_REG);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   Register rhs; */
+  public void visit(Move_Id_Reg n) {
+    out.writeVarInt(OP_MOVE_ID_REG);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Identifier rhs; */
+  public void visit(Move_Reg_Id n) {
+    out.writeVarInt(OP_MOVE_REG_ID);
+    symbol(n.lhs);
+    symbol(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register size; */
+  public void visit(Alloc n) {
+    out.writeVarInt(OP_ALLOC);
+    symbol(n.lhs);
+    symbol(n.size);
+  }
+
+  /*   Register content; */
+  public void visit(Print n) {
+    out.writeVarInt(OP_PRINT);
+    symbol(n.content);
+  }
+
+  /*   String msg; */
+  public void visit(ErrorMessage n) {
+    out.writeVarInt(OP_ERROR);
+    symbol(n.msg);
+  }
+
+  /*   Label label; */
+  public void visit(Goto n) {
+    out.writeVarInt(OP_GOTO);
+    symbol(n.label);
+  }
+
+  /*   Register condition;
+   *   Label label; */
+  public void visit(IfGoto n) {
+    out.writeVarInt(OP_IFGOTO);
+    symbol(n.condition);
+    symbol(n.label);
+  }
+
+  /*   Register lhs;
+   *   Register callee;
+   *   List<Identifier> args; */
+  public void visit(Call n) {
+    out.writeVarInt(OP_CALL);
+    symbol(n.lhs);
+    symbol(n.callee);
+    out.writeVarInt(n.args.size());
+    for (Identifier arg: n.args) {
+        symbol(arg);
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import sparrowv.*;
+import sparrowv.visitor.ControlFlowGraph.BasicBlock;
+
+// removes "if0 r goto L" when r is known to be nonzero there, i.e. null and bounds checks that cannot fail:
+//   - r was set by alloc, by a nonzero constant or a function address, or copied from such a register or stack slot
+//   - r, or the stack slot r was reloaded from, is being tested again on a path where the same test already fell through
+//   - r = a < b, and a < b already held on every path here (a repeated bounds check)
+// the error blocks these checks jumped to are left unreachable; run dce afterwards to remove them
+public class CheckEliminationVisitor extends DepthFirst {
+    public LinkedHashMap<String, Integer> func_checks_removed;    // if0 removed per function
+
+    String cur_func_id;
+    UseDefVisitor use_def;
+
+    // what is known to hold at a point of the function, on every path to it
+    static class Facts {
+        HashSet<String> nonzero_registers = new HashSet<>();
+        HashSet<String> nonzero_ids = new HashSet<>();          // stack slots, which calls do not touch
+        HashMap<String, String> register_ids = new HashMap<>(); // r -> stack slot r still holds a copy of
+        HashMap<String, String> register_comparisons = new HashMap<>();    // r -> "a < b" that r still holds the result of
+        HashSet<String> true_comparisons = new HashSet<>();     // "a < b" known to be 1
+
+        Facts copy() {
+            Facts facts = new Facts();
+            facts.nonzero_registers.addAll(nonzero_registers);
+            facts.nonzero_ids.addAll(nonzero_ids);
+            facts.register_ids.putAll(register_ids);
+            facts.register_comparisons.putAll(register_comparisons);
+            facts.true_comparisons.addAll(true_comparisons);
+            return facts;
+        }
+
+        Facts meet(Facts other) {
+            Facts facts = copy();
+            facts.nonzero_registers.retainAll(other.nonzero_registers);
+            facts.nonzero_ids.retainAll(other.nonzero_ids);
+            facts.register_ids.entrySet().removeIf(e -> !e.getValue().equals(other.register_ids.get(e.getKey())));
+            facts.register_comparisons.entrySet().removeIf(e -> !e.getValue().equals(other.register_comparisons.get(e.getKey())));
+            facts.true_comparisons.retainAll(other.true_comparisons);
+            return facts;
+        }
+
+        boolean same(Facts other) {
+            return nonzero_registers.equals(other.nonzero_registers) && nonzero_ids.equals(other.nonzero_ids)
+                && register_ids.equals(other.register_ids)
+                && register_comparisons.equals(other.register_comparisons) && true_comparisons.equals(other.true_comparisons);
+        }
+
+        // register was overwritten
+        void kill(String register) {
+            nonzero_registers.remove(register);
+            register_ids.remove(register);
+            register_comparisons.remove(register);
+            register_comparisons.values().removeIf(comparison -> mentions(comparison, register));
+            true_comparisons.removeIf(comparison -> mentions(comparison, register));
+        }
+
+        void kill_registers() {
+            nonzero_registers.clear();
+            register_ids.clear();
+            register_comparisons.clear();
+            true_comparisons.clear();
+        }
+
+        // taking the fall-through edge of "if0 r goto L" means r != 0
+        void assume_nonzero(String register) {
+            nonzero_registers.add(register);
+            if (register_ids.containsKey(register)) nonzero_ids.add(register_ids.get(register));
+            if (register_comparisons.containsKey(register)) true_comparisons.add(register_comparisons.get(register));
+        }
+    }
+
+    public CheckEliminationVisitor() {
+        func_checks_removed = new LinkedHashMap<>();
+        cur_func_id = "";
+        use_def = new UseDefVisitor();
+    }
+
+    // helpers
+    static String comparison(String arg1, String arg2) { return arg1 + " < " + arg2; }
+    static boolean mentions(String comparison, String register) {
+        int split = comparison.indexOf(" < ");
+        return comparison.substring(0, split).equals(register) || comparison.substring(split + 3).equals(register);
+    }
+    public int get_total_removed() {
+        int total = 0;
+        for (int count : func_checks_removed.values()) total += count;
+        return total;
+    }
+
+    // debug
+    public void print_elimination_report() {
+        System.err.println("Check elimination:");
+        for (String func_name : func_checks_removed.keySet()) {
+            System.err.println("\t" + func_name + " : " + func_checks_removed.get(func_name));
+        }
+        System.err.println("\ttotal : " + get_total_removed());
+    }
+
+
+    /*   Program parent;
+    *   FunctionName functionName;
+    *   List<Identifier> formalParameters;
+    *   Block block; */
+    public void visit(FunctionDecl n) {
+        cur_func_id = n.functionName.toString();
+        func_checks_removed.put(cur_func_id, 0);
+        n.block.accept(this);
+    }
+
+    /*   FunctionDecl parent;
+    *   List<Instruction> instructions;
+    *   Identifier return_id; */
+    public void visit(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        if (!cfg.well_formed) return;
+
+        List<Facts> block_in = forward_facts(n, cfg);
+
+        List<Instruction> kept = new ArrayList<>();
+        for (BasicBlock block : cfg.blocks) {
+            Facts facts = block_in.get(block.index);
+            facts = facts == null ? new Facts() : facts.copy();
+
+            for (int idx = block.start; idx < block.end; idx++) {
+                Instruction i = n.instructions.get(idx);
+                if (i instanceof IfGoto && facts.nonzero_registers.contains(((IfGoto) i).condition.toString())) {
+                    func_checks_removed.put(cur_func_id, func_checks_removed.get(cur_func_id) + 1);
+                    continue;
+                }
+                transfer(i, facts);
+                kept.add(i);
+            }
+        }
+        n.instructions = kept;
+        for (Instruction i : n.instructions) i.parent = n;
+    }
+
+    // forward must-analysis, the facts holding on entry to each block (null = not reached)
+    List<Facts> forward_facts(Block n, ControlFlowGraph cfg) {
+        List<Facts> block_in = new ArrayList<>();
+        for (int b = 0; b < cfg.blocks.size(); b++) block_in.add(null);
+        if (cfg.entry() != null) block_in.set(0, new Facts());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : cfg.blocks) {
+                if (block_in.get(block.index) == null) continue;
+                Facts facts = block_in.get(block.index).copy();
+
+                for (int idx = block.start; idx < block.end; idx++) {
+                    transfer(n.instructions.get(idx), facts);
+                }
+
+                // the fall-through edge of a trailing if0 knows its condition was nonzero
+                Instruction last = n.instructions.get(block.end - 1);
+                BasicBlock jump_target = null;
+                Facts fall_through = facts;
+                if (last instanceof IfGoto) {
+                    jump_target = cfg.label_blocks.get(((IfGoto) last).label.toString());
+                    fall_through = facts.copy();
+                    fall_through.assume_nonzero(((IfGoto) last).condition.toString());
+                }
+
+                for (BasicBlock succ : block.successors) {
+                    Facts out = succ == jump_target ? facts : fall_through;
+                    Facts succ_in = block_in.get(succ.index);
+                    Facts merged = succ_in == null ? out.copy() : succ_in.meet(out);
+
+                    if (succ_in == null || !merged.same(succ_in)) {
+                        block_in.set(succ.index, merged);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return block_in;
+    }
+
+    // apply one instruction to the facts
+    void transfer(Instruction i, Facts facts) {
+        if (i instanceof Move_Reg_Integer) {
+            Move_Reg_Integer move = (Move_Reg_Integer) i;
+            facts.kill(move.lhs.toString());
+            if (move.rhs != 0) facts.nonzero_registers.add(move.lhs.toString());
+        } else if (i instanceof Move_Reg_FuncName) {
+            facts.kill(((Move_Reg_FuncName) i).lhs.toString());
+            facts.nonzero_registers.add(((Move_Reg_FuncName) i).lhs.toString());
+        } else if (i instanceof Alloc) {
+            facts.kill(((Alloc) i).lhs.toString());
+            facts.nonzero_registers.add(((Alloc) i).lhs.toString());
+        } else if (i instanceof Move_Reg_Reg) {
+            Move_Reg_Reg move = (Move_Reg_Reg) i;
+            String lhs_register = move.lhs.toString();
+            String rhs_register = move.rhs.toString();
+            if (lhs_register.equals(rhs_register)) return;
+
+            boolean nonzero = facts.nonzero_registers.contains(rhs_register);
+            facts.kill(lhs_register);
+            if (nonzero) facts.nonzero_registers.add(lhs_register);
+        } else if (i instanceof Move_Reg_Id) {
+            Move_Reg_Id reload = (Move_Reg_Id) i;
+            facts.kill(reload.lhs.toString());
+            facts.register_ids.put(reload.lhs.toString(), reload.rhs.toString());
+            if (facts.nonzero_ids.contains(reload.rhs.toString())) facts.nonzero_registers.add(reload.lhs.toString());
+        } else if (i instanceof Move_Id_Reg) {
+            Move_Id_Reg store = (Move_Id_Reg) i;
+            facts.register_ids.values().removeIf(id -> id.equals(store.lhs.toString()));
+            facts.register_ids.put(store.rhs.toString(), store.lhs.toString());
+            if (facts.nonzero_registers.contains(store.rhs.toString())) facts.nonzero_ids.add(store.lhs.toString());
+            else facts.nonzero_ids.remove(store.lhs.toString());
+        } else if (i instanceof LessThan) {
+            LessThan less = (LessThan) i;
+            String lhs_register = less.lhs.toString();
+            String compared = comparison(less.arg1.toString(), less.arg2.toString());
+            boolean known_true = facts.true_comparisons.contains(compared);
+
+            facts.kill(lhs_register);
+            if (!mentions(compared, lhs_register)) facts.register_comparisons.put(lhs_register, compared);
+            if (known_true) facts.nonzero_registers.add(lhs_register);
+        } else if (i instanceof Call) {
+            // the callee is free to clobber any register, but not our stack slots
+            facts.kill_registers();
+        } else {
+            use_def.compute(i);
+            for (String reg : use_def.defined_registers) facts.kill(reg);
+        }
+    }
+}
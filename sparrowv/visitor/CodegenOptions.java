@@ -0,0 +1,38 @@
+package sparrowv.visitor;
+
+import java.util.List;
+
+// switches for the code RiscVTranslateVisitor emits, shared with the FrameDataVisitor that lays out its frames
+// all off by default, which gives the original code and calling convention
+public class CodegenOptions {
+    public static final String TAIL_CALLS = "-tail-calls";
+    public static final String STATIC_ARGS = "-static-args";
+    public static final String INLINE_RUNTIME = "-inline-runtime";
+    public static final String BUMP_ALLOC = "-bump-alloc";
+    public static final String STRENGTH_REDUCE = "-strength-reduce";
+
+    public boolean tail_calls;      // a call whose result is returned right away reuses the caller's frame
+    public boolean static_args;     // callers keep one argument area in their frame and callees leave it alone;
+                                    // a calling convention change, so every function must be translated this way
+    public boolean inline_runtime;  // print and alloc make their ecall in place rather than through the stubs
+    public boolean bump_alloc;      // alloc bumps a heap pointer kept in gp, refilled from sbrk a chunk at a time
+    public boolean strength_reduce; // a multiply by a constant known within the block becomes shifts and adds
+
+    public CodegenOptions() {
+        tail_calls = false;
+        static_args = false;
+        inline_runtime = false;
+        bump_alloc = false;
+        strength_reduce = false;
+    }
+
+    public static CodegenOptions from_options(List<String> options) {
+        CodegenOptions codegen_options = new CodegenOptions();
+        codegen_options.tail_calls = options.contains(TAIL_CALLS);
+        codegen_options.static_args = options.contains(STATIC_ARGS);
+        codegen_options.inline_runtime = options.contains(INLINE_RUNTIME);
+        codegen_options.bump_alloc = options.contains(BUMP_ALLOC);
+        codegen_options.strength_reduce = options.contains(STRENGTH_REDUCE);
+        return codegen_options;
+    }
+}
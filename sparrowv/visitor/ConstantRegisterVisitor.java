@@ -0,0 +1,126 @@
+package sparrowv.visitor;
+
+import java.util.HashMap;
+
+import sparrowv.*;
+
+// tracks registers that are known to hold an integer constant at the current point of a block
+// values are only trusted within straight-line code: labels (join points) and calls forget everything
+public class ConstantRegisterVisitor extends DepthFirst {
+    HashMap<String, Integer> register_constants;
+
+    public ConstantRegisterVisitor() {
+        register_constants = new HashMap<>();
+    }
+
+    // helpers
+    public void reset() { register_constants.clear(); }
+    public boolean is_constant(String register) { return register_constants.containsKey(register); }
+    public int get_constant(String register) { return register_constants.get(register); }
+    void kill(String register) { register_constants.remove(register); }
+
+
+    /*   FunctionDecl parent;
+    *   List<Instruction> instructions;
+    *   Identifier return_id; */
+    public void visit(Block n) {
+        reset();
+        for (Instruction i : n.instructions) {
+            update(i);
+        }
+    }
+
+    // same as instr.accept(this), switching on the opcode instead; only the instructions that write a register or join
+    // paths change anything
+    public void update(Instruction instr) {
+        switch (instr.opcode) {
+            case Opcodes.OP_LABEL: visit((LabelInstr) instr); break;
+            case Opcodes.OP_MOVE_REG_INTEGER: visit((Move_Reg_Integer) instr); break;
+            case Opcodes.OP_MOVE_REG_FUNCNAME: visit((Move_Reg_FuncName) instr); break;
+            case Opcodes.OP_ADD: visit((Add) instr); break;
+            case Opcodes.OP_SUBTRACT: visit((Subtract) instr); break;
+            case Opcodes.OP_MULTIPLY: visit((Multiply) instr); break;
+            case Opcodes.OP_LESSTHAN: visit((LessThan) instr); break;
+            case Opcodes.OP_LOAD: visit((Load) instr); break;
+            case Opcodes.OP_MOVE_REG_REG: visit((Move_Reg_Reg) instr); break;
+            case Opcodes.OP_MOVE_REG_ID: visit((Move_Reg_Id) instr); break;
+            case Opcodes.OP_ALLOC: visit((Alloc) instr); break;
+            case Opcodes.OP_CALL: visit((Call) instr); break;
+            case Opcodes.OP_STORE: case Opcodes.OP_MOVE_ID_REG: case Opcodes.OP_PRINT: case Opcodes.OP_ERROR:
+            case Opcodes.OP_GOTO: case Opcodes.OP_IFGOTO:
+                break;
+            default:
+                instr.accept(this);
+        }
+    }
+
+    /*   Label label; */
+    public void visit(LabelInstr n) {
+        // other paths may jump here with different register contents
+        reset();
+    }
+
+    /*   Register lhs;
+    *   int rhs; */
+    public void visit(Move_Reg_Integer n) {
+        register_constants.put(n.lhs.toString(), n.rhs);
+    }
+
+    /*   Register lhs;
+    *   FunctionName rhs; */
+    public void visit(Move_Reg_FuncName n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Add n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Subtract n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Multiply n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(LessThan n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register base;
+    *   int offset; */
+    public void visit(Load n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register rhs; */
+    public void visit(Move_Reg_Reg n) {
+        String lhs_register = n.lhs.toString();
+        String rhs_register = n.rhs.toString();
+
+        if (is_constant(rhs_register)) {
+            register_constants.put(lhs_register, get_constant(rhs_register));
+        } else {
+            kill(lhs_register);
+        }
+    }
+
+    /*   Register lhs;
+    *   Identifier rhs; */
+    public void visit(Move_Reg_Id n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register size; */
+    public void visit(Alloc n) { kill(n.lhs.toString()); }
+
+    /*   Register lhs;
+    *   Register callee;
+    *   List<Identifier> args; */
+    public void visit(Call n) {
+        // the callee is free to clobber any register
+        reset();
+    }
+}
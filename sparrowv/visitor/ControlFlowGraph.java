@@ -0,0 +1,120 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import sparrowv.*;
+
+// basic blocks of a sparrowv Block, as index ranges over its instruction list
+public class ControlFlowGraph {
+    public static class BasicBlock {
+        public int index;
+        public int start;       // first instruction
+        public int end;         // one past the last instruction
+        public boolean exits;   // control falls off the end of the block into "return"
+        public List<BasicBlock> successors = new ArrayList<>();
+        public List<BasicBlock> predecessors = new ArrayList<>();
+
+        BasicBlock(int index, int start) {
+            this.index = index;
+            this.start = start;
+        }
+    }
+
+    public List<Instruction> instructions;
+    public List<BasicBlock> blocks;
+    public HashMap<String, BasicBlock> label_blocks;    // label -> block it starts
+    public boolean well_formed;                         // every jump target is defined
+
+    public ControlFlowGraph(List<Instruction> instructions) {
+        this.instructions = instructions;
+        blocks = new ArrayList<>();
+        label_blocks = new HashMap<>();
+        well_formed = true;
+
+        split_blocks();
+        link_blocks();
+    }
+
+    // helpers
+    public BasicBlock entry() { return blocks.isEmpty() ? null : blocks.get(0); }
+    boolean ends_block(Instruction i) { return i instanceof Goto || i instanceof IfGoto || i instanceof ErrorMessage; }
+
+    void split_blocks() {
+        BasicBlock cur_block = null;
+
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instr = instructions.get(i);
+
+            if (cur_block == null || instr instanceof LabelInstr) {
+                if (cur_block != null) cur_block.end = i;
+                cur_block = new BasicBlock(blocks.size(), i);
+                blocks.add(cur_block);
+            }
+            if (instr instanceof LabelInstr) {
+                label_blocks.put(((LabelInstr) instr).label.toString(), cur_block);
+            }
+            if (ends_block(instr)) {
+                cur_block.end = i + 1;
+                cur_block = null;
+            }
+        }
+        if (cur_block != null) cur_block.end = instructions.size();
+    }
+
+    void link_blocks() {
+        for (BasicBlock block : blocks) {
+            Instruction last = instructions.get(block.end - 1);
+            boolean falls_through = !(last instanceof Goto || last instanceof ErrorMessage);
+
+            if (last instanceof Goto) add_jump(block, ((Goto) last).label.toString());
+            if (last instanceof IfGoto) add_jump(block, ((IfGoto) last).label.toString());
+            if (falls_through) {
+                if (block.index + 1 < blocks.size()) {
+                    add_edge(block, blocks.get(block.index + 1));
+                } else {
+                    block.exits = true;
+                }
+            }
+        }
+    }
+
+    void add_jump(BasicBlock from, String label) {
+        BasicBlock to = label_blocks.get(label);
+
+        if (to == null) {
+            well_formed = false;
+            return;
+        }
+        add_edge(from, to);
+    }
+
+    void add_edge(BasicBlock from, BasicBlock to) {
+        if (from.successors.contains(to)) return;
+        from.successors.add(to);
+        to.predecessors.add(from);
+    }
+
+    // blocks reachable from the entry of the function
+    public boolean[] reachable_blocks() {
+        boolean[] reachable = new boolean[blocks.size()];
+        List<BasicBlock> worklist = new ArrayList<>();
+
+        if (entry() != null) {
+            reachable[0] = true;
+            worklist.add(entry());
+        }
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.remove(worklist.size() - 1);
+
+            for (BasicBlock succ : block.successors) {
+                if (!reachable[succ.index]) {
+                    reachable[succ.index] = true;
+                    worklist.add(succ);
+                }
+            }
+        }
+        return reachable;
+    }
+}
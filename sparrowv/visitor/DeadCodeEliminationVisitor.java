@@ -0,0 +1,277 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import sparrowv.*;
+import sparrowv.visitor.ControlFlowGraph.BasicBlock;
+
+// removes unreachable blocks, unreferenced labels and register writes whose value is never read
+// with flat set, the register liveness runs over the FlatBlock form of each block, with registers as symbol ids in BitSets
+public class DeadCodeEliminationVisitor extends DepthFirst {
+    public LinkedHashMap<String, Integer> func_eliminated_instructions;    // instructions removed per function
+
+    // callee-saved registers still hold the caller's values when the function returns
+    public static final String[] LIVE_AT_RETURN = { "s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8", "s9", "s10", "s11" };
+
+    String cur_func_id;
+    UseDefVisitor use_def;
+    boolean flat;
+
+    public DeadCodeEliminationVisitor() {
+        this(false);
+    }
+
+    public DeadCodeEliminationVisitor(boolean flat) {
+        func_eliminated_instructions = new LinkedHashMap<>();
+        cur_func_id = "";
+        use_def = new UseDefVisitor();
+        this.flat = flat;
+    }
+
+    // helpers
+    public int get_total_eliminated() {
+        int total = 0;
+        for (int count : func_eliminated_instructions.values()) total += count;
+        return total;
+    }
+
+    // only instructions that do nothing but write a register may be dropped
+    boolean is_pure_register_write(Instruction i) {
+        return i instanceof Move_Reg_Integer || i instanceof Move_Reg_FuncName
+            || i instanceof Add || i instanceof Subtract || i instanceof Multiply || i instanceof LessThan
+            || i instanceof Move_Reg_Reg || i instanceof Move_Reg_Id;
+    }
+    static boolean is_pure_register_write(int opcode) {
+        switch (opcode) {
+            case Opcodes.OP_MOVE_REG_INTEGER: case Opcodes.OP_MOVE_REG_FUNCNAME:
+            case Opcodes.OP_ADD: case Opcodes.OP_SUBTRACT: case Opcodes.OP_MULTIPLY: case Opcodes.OP_LESSTHAN:
+            case Opcodes.OP_MOVE_REG_REG: case Opcodes.OP_MOVE_REG_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // debug
+    public void print_elimination_report() {
+        System.err.println("Dead code elimination:");
+        for (String func_name : func_eliminated_instructions.keySet()) {
+            System.err.println("\t" + func_name + " : " + func_eliminated_instructions.get(func_name));
+        }
+        System.err.println("\ttotal : " + get_total_eliminated());
+    }
+
+
+    /*   Program parent;
+    *   FunctionName functionName;
+    *   List<Identifier> formalParameters;
+    *   Block block; */
+    public void visit(FunctionDecl n) {
+        cur_func_id = n.functionName.toString();
+        n.block.accept(this);
+    }
+
+    /*   FunctionDecl parent;
+    *   List<Instruction> instructions;
+    *   Identifier return_id; */
+    public void visit(Block n) {
+        int original_size = n.instructions.size();
+
+        if (remove_unreachable_code(n)) {
+            remove_unused_labels(n);
+            if (flat) remove_dead_writes_flat(n);
+            else while (remove_dead_writes(n));
+        }
+        func_eliminated_instructions.put(cur_func_id, original_size - n.instructions.size());
+    }
+
+    // returns false if the block cannot be analysed (jumps to undefined labels)
+    boolean remove_unreachable_code(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        if (!cfg.well_formed) return false;
+
+        boolean[] reachable = cfg.reachable_blocks();
+        List<Instruction> kept = new ArrayList<>();
+
+        for (BasicBlock block : cfg.blocks) {
+            if (!reachable[block.index]) continue;
+            kept.addAll(n.instructions.subList(block.start, block.end));
+        }
+        n.instructions = kept;
+        return true;
+    }
+
+    void remove_unused_labels(Block n) {
+        HashSet<String> referenced_labels = new HashSet<>();
+        List<Instruction> kept = new ArrayList<>();
+
+        for (Instruction i : n.instructions) {
+            if (i instanceof Goto) referenced_labels.add(((Goto) i).label.toString());
+            if (i instanceof IfGoto) referenced_labels.add(((IfGoto) i).label.toString());
+        }
+        for (Instruction i : n.instructions) {
+            if (i instanceof LabelInstr && !referenced_labels.contains(((LabelInstr) i).label.toString())) continue;
+            kept.add(i);
+        }
+        n.instructions = kept;
+    }
+
+    // one round of register liveness over the CFG, returns true if anything was removed
+    boolean remove_dead_writes(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        List<HashSet<String>> live_in = compute_live_in(cfg);
+        List<Instruction> kept = new ArrayList<>();
+        boolean changed = false;
+
+        for (BasicBlock block : cfg.blocks) {
+            HashSet<String> live = live_out(cfg, block, live_in);
+            ArrayList<Instruction> block_kept = new ArrayList<>();
+
+            for (int idx = block.end - 1; idx >= block.start; idx--) {
+                Instruction i = n.instructions.get(idx);
+                use_def.compute(i);
+
+                if (is_pure_register_write(i) && !live.contains(use_def.defined_registers.get(0))) {
+                    changed = true;
+                    continue;
+                }
+                live.removeAll(use_def.defined_registers);
+                live.addAll(use_def.used_registers);
+                block_kept.add(i);
+            }
+            Collections.reverse(block_kept);
+            kept.addAll(block_kept);
+        }
+        n.instructions = kept;
+        return changed;
+    }
+
+    HashSet<String> live_out(ControlFlowGraph cfg, BasicBlock block, List<HashSet<String>> live_in) {
+        HashSet<String> live = new HashSet<>();
+
+        if (block.exits) {
+            for (String reg : LIVE_AT_RETURN) live.add(reg);
+        }
+        for (BasicBlock succ : block.successors) {
+            live.addAll(live_in.get(succ.index));
+        }
+        return live;
+    }
+
+    List<HashSet<String>> compute_live_in(ControlFlowGraph cfg) {
+        List<HashSet<String>> live_in = new ArrayList<>();
+        for (int b = 0; b < cfg.blocks.size(); b++) live_in.add(new HashSet<>());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = cfg.blocks.size() - 1; b >= 0; b--) {
+                BasicBlock block = cfg.blocks.get(b);
+                HashSet<String> live = live_out(cfg, block, live_in);
+
+                for (int idx = block.end - 1; idx >= block.start; idx--) {
+                    use_def.compute(cfg.instructions.get(idx));
+                    live.removeAll(use_def.defined_registers);
+                    live.addAll(use_def.used_registers);
+                }
+                if (!live.equals(live_in.get(b))) {
+                    live_in.set(b, live);
+                    changed = true;
+                }
+            }
+        }
+        return live_in;
+    }
+
+    // remove_dead_writes to a fixed point, over the FlatBlock form of the block
+    // dropping a register write never changes the block structure, so one CFG serves every round
+    void remove_dead_writes_flat(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        FlatBlock flat_block = FlatBlock.encode(n);
+        boolean[] dead = new boolean[flat_block.size];
+        BitSet live_at_return = new BitSet();
+        BitSet argument_registers = new BitSet();
+        for (String reg : LIVE_AT_RETURN) live_at_return.set(flat_block.symbol(reg));
+        for (String reg : UseDefVisitor.ARGUMENT_REGISTERS) argument_registers.set(flat_block.symbol(reg));
+        int[] used = new int[2];
+        boolean removed = false;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<BitSet> live_in = compute_live_in_flat(cfg, flat_block, dead, live_at_return, argument_registers);
+
+            for (BasicBlock block : cfg.blocks) {
+                BitSet live = live_out_flat(block, live_in, live_at_return);
+
+                for (int idx = block.end - 1; idx >= block.start; idx--) {
+                    if (dead[idx]) continue;
+                    int defined = flat_block.definedRegister(idx);
+                    if (is_pure_register_write(flat_block.opcode[idx]) && !live.get(defined)) {
+                        dead[idx] = true;
+                        changed = true;
+                        continue;
+                    }
+                    transfer_flat(flat_block, idx, live, used, argument_registers);
+                }
+            }
+            removed |= changed;
+        }
+        if (!removed) return;
+
+        // flat index idx is n.instructions.get(idx), so the surviving instructions are kept as they are
+        List<Instruction> kept = new ArrayList<>(n.instructions.size());
+        for (int idx = 0; idx < flat_block.size; idx++) {
+            if (!dead[idx]) kept.add(n.instructions.get(idx));
+        }
+        n.instructions = kept;
+    }
+
+    // live registers before instruction idx, given those live after it
+    void transfer_flat(FlatBlock flat_block, int idx, BitSet live, int[] used, BitSet argument_registers) {
+        int defined = flat_block.definedRegister(idx);
+        if (defined >= 0) live.clear(defined);
+        int used_count = flat_block.usedRegisters(idx, used);
+        for (int u = 0; u < used_count; u++) live.set(used[u]);
+        if (flat_block.opcode[idx] == Opcodes.OP_CALL) live.or(argument_registers);
+    }
+
+    BitSet live_out_flat(BasicBlock block, List<BitSet> live_in, BitSet live_at_return) {
+        BitSet live = new BitSet();
+
+        if (block.exits) live.or(live_at_return);
+        for (BasicBlock succ : block.successors) {
+            live.or(live_in.get(succ.index));
+        }
+        return live;
+    }
+
+    List<BitSet> compute_live_in_flat(ControlFlowGraph cfg, FlatBlock flat_block, boolean[] dead, BitSet live_at_return, BitSet argument_registers) {
+        List<BitSet> live_in = new ArrayList<>();
+        for (int b = 0; b < cfg.blocks.size(); b++) live_in.add(new BitSet());
+        int[] used = new int[2];
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = cfg.blocks.size() - 1; b >= 0; b--) {
+                BasicBlock block = cfg.blocks.get(b);
+                BitSet live = live_out_flat(block, live_in, live_at_return);
+
+                for (int idx = block.end - 1; idx >= block.start; idx--) {
+                    if (!dead[idx]) transfer_flat(flat_block, idx, live, used, argument_registers);
+                }
+                if (!live.equals(live_in.get(b))) {
+                    live_in.set(b, live);
+                    changed = true;
+                }
+            }
+        }
+        return live_in;
+    }
+}
@@ -2,7 +2,10 @@ package sparrowv.visitor;
 
 import sparrowv.visitor.DepthFirst;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -14,9 +17,12 @@ public class FrameDataVisitor extends DepthFirst {
     public HashMap<String, HashMap<String, Integer>> func_local_variable_offsets;   // get stack offsets of a local variable
     public HashMap<String, HashMap<String, Integer>> func_argument_offsets;         // get stack offsets of an argument
     public HashMap<String, Integer> func_frame_size;                                // function frame size to be allocated 
+    public HashMap<String, Integer> func_outgoing_arg_size;                         // argument area for the largest call (static args only)
 
+    CodegenOptions codegen_options;
     String cur_func_id;
     int cur_offset;
+    int cur_max_call_args;
     
     public HashSet<String> REGISTERS;
     int START_OFFSET = 12;  // -4 reserved for return address (ra)
@@ -25,9 +31,16 @@ public class FrameDataVisitor extends DepthFirst {
     String MAIN_ID = "Main";
 
     public FrameDataVisitor() {
+        this(new CodegenOptions());
+    }
+
+    // with codegen_options.static_args, every frame ends in an argument area that all calls of the function share
+    public FrameDataVisitor(CodegenOptions codegen_options) {
+        this.codegen_options = codegen_options;
         func_local_variable_offsets = new HashMap<>();
         func_argument_offsets = new HashMap<>();
         func_frame_size = new HashMap<>();
+        func_outgoing_arg_size = new HashMap<>();
 
         cur_func_id = "";
         cur_offset = START_OFFSET;
@@ -41,7 +54,18 @@ public class FrameDataVisitor extends DepthFirst {
 
     public void generate_frame_data(Program program) {
         program.accept(this);
-        print_frame_data_offsets();
+    }
+
+    // frame data of a single function, for callers that translate one FunctionDecl at a time
+    public void generate_frame_data(FunctionDecl function) {
+        function.accept(this);
+    }
+
+    public void release_frame_data(String func_id) {
+        func_local_variable_offsets.remove(func_id);
+        func_argument_offsets.remove(func_id);
+        func_frame_size.remove(func_id);
+        func_outgoing_arg_size.remove(func_id);
     }
 
     // helpers
@@ -75,26 +99,37 @@ public class FrameDataVisitor extends DepthFirst {
     }
 
 
-    // debug
-    void print_frame_data_offsets() {
-        System.err.println("Function local variables and arguments:");
-        for (String func_name : func_local_variable_offsets.keySet()) {
-            System.err.println("Function: " + func_name + " has size of " + func_frame_size.get(func_name) + " bytes.");
-            System.err.println("Args total size of " + get_func_arg_size(func_name) + " bytes.");
-            HashMap<String, Integer> local_var_map = func_local_variable_offsets.get(func_name);
-            HashMap<String, Integer> local_arg_map = func_argument_offsets.get(func_name);
-            System.err.println("ARGS:");
-            for (String arg_name : local_arg_map.keySet()) {
-                System.err.println("\t" + arg_name + " : " + local_arg_map.get(arg_name));
-            }
-            System.err.println("FIELDS:");
-            for (String var_name : local_var_map.keySet()) {
-                System.err.println("\t" + var_name + " : " + local_var_map.get(var_name));
-            }
-            System.err.println("\n");
+    // report: one JSON object per line and function, in name order
+    //   {"function":"Fact","frame_size":20,"arg_size":4,"args":{"n":0},"locals":{"ret":-12,"x":-16,"sv":-20}}
+    // local offsets are relative to fp, argument offsets to the caller's outgoing argument area
+    public void write_frame_report(Writer out) throws IOException {
+        List<String> func_names = new ArrayList<>(func_argument_offsets.keySet());
+        Collections.sort(func_names);
+
+        for (String func_name : func_names) {
+            out.write("{\"function\":\"" + func_name + "\"");
+            out.write(",\"frame_size\":" + func_frame_size.getOrDefault(func_name, 0));
+            out.write(",\"arg_size\":" + get_func_arg_size(func_name));
+            out.write(",\"args\":");
+            write_slot_map(out, func_argument_offsets.get(func_name), 1);
+            out.write(",\"locals\":");
+            write_slot_map(out, func_local_variable_offsets.get(func_name), -1);
+            out.write("}\n");
         }
     }
 
+    void write_slot_map(Writer out, HashMap<String, Integer> offsets, int sign) throws IOException {
+        List<String> names = new ArrayList<>(offsets.keySet());
+        names.sort((a, b) -> Integer.compare(offsets.get(a), offsets.get(b)));
+
+        out.write("{");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) out.write(",");
+            out.write("\"" + names.get(i) + "\":" + sign * offsets.get(names.get(i)));
+        }
+        out.write("}");
+    }
+
 
     /*   List<FunctionDecl> funDecls; */
     public void visit(Program n) {
@@ -118,6 +153,7 @@ public class FrameDataVisitor extends DepthFirst {
 
         cur_func_id = function_name;
         cur_offset = START_OFFSET;
+        cur_max_call_args = 0;
         for (int i = 0; i < formal_parameters.size(); i++) {
             String param_name = formal_parameters.get(i).toString();
 
@@ -137,6 +173,12 @@ public class FrameDataVisitor extends DepthFirst {
             i.accept(this);
         }
         add_func_field_offset(cur_func_id, return_id);
+
+        // the argument area sits below the locals, at sp, where each callee finds its parameters
+        if (codegen_options.static_args) {
+            func_outgoing_arg_size.put(cur_func_id, cur_max_call_args * 4);
+            func_frame_size.put(cur_func_id, func_frame_size.get(cur_func_id) + cur_max_call_args * 4);
+        }
     }
 
     /*   Identifier lhs;
@@ -159,8 +201,7 @@ public class FrameDataVisitor extends DepthFirst {
     *   Register callee;
     *   List<Identifier> args; */
     public void visit(Call n) {
-        // parameters?
-        // it is likely that they have been recorded already prior, but let's keep the function just in case
-        return;
+        // the largest call decides the size of the static argument area
+        cur_max_call_args = Math.max(cur_max_call_args, n.args.size());
     }
 }
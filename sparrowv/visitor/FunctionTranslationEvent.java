@@ -0,0 +1,29 @@
+package sparrowv.visitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event spanning the translation of one FunctionDecl by RiscVTranslateVisitor
+@Name("sv2v.FunctionTranslation")
+@Label("SV2V Function Translation")
+@Category({ "SV2V" })
+@Description("Translation of one function to RISC-V")
+public class FunctionTranslationEvent extends Event {
+    @Label("Function")
+    String function_name;
+
+    @Label("Instructions")
+    int instruction_count;
+
+    @Label("Frame Size")
+    @DataAmount
+    int frame_size;
+
+    @Label("Emitted Bytes")
+    @DataAmount
+    int emitted_bytes;
+}
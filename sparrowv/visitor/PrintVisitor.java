@@ -0,0 +1,190 @@
+package sparrowv.visitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import IR.token.Identifier;
+import sparrowv.*;
+
+// writes a Program in the same text form toString() produces, straight to an Appendable (a Writer, a StringBuilder)
+// so printing takes time linear in the size of the program; the output parses back with SparrowParser
+public class PrintVisitor implements Visitor {
+  Appendable out;
+
+  public PrintVisitor(Appendable out) {
+    this.out = out;
+  }
+
+  public static void print(Program program, Appendable out) throws IOException {
+    try {
+      program.accept(new PrintVisitor(out));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  PrintVisitor append(Object token) {
+    try {
+      out.append(token.toString());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return this;
+  }
+
+  PrintVisitor append(int value) {
+    return append(Integer.toString(value));
+  }
+
+  // space separated, as in a parameter or argument list
+  void list(List<Identifier> ids) {
+    for (int i = 0; i < ids.size(); i++) {
+      if (i > 0) append(" ");
+      append(ids.get(i));
+    }
+  }
+
+  /*   List<FunctionDecl> funDecls; */
+  public void visit(Program n) {
+    for (FunctionDecl fd: n.funDecls) {
+        fd.accept(this);
+    }
+  }
+
+  /*   Program parent;
+   *   FunctionName functionName;
+   *   List<Identifier> formalParameters;
+   *   Block block; */
+  public void visit(FunctionDecl n) {
+    append("func ").append(n.functionName).append("(");
+    list(n.formalParameters);
+    append(")\n");
+    n.block.accept(this);
+    append("\n\n");
+  }
+
+  /*   FunctionDecl parent;
+   *   List<Instruction> instructions;
+   *   Identifier return_id; */
+  public void visit(Block n) {
+    for (Instruction i: n.instructions) {
+        i.accept(this);
+        append("\n");
+    }
+    append("      return ").append(n.return_id);
+  }
+
+  /*   Label label; */
+  public void visit(LabelInstr n) {
+    append(n.label).append(":");
+  }
+
+  /*   Register lhs;
+   *   int rhs; */
+  public void visit(Move_Reg_Integer n) {
+    append(n.lhs).append(" = ").append(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register rhs; */
+  public void visit(Move_Reg_Reg n) {
+    append(n.lhs).append(" = ").append(n.rhs);
+  }
+
+  /*   Identifier lhs;
+   *   Register rhs; */
+  public void visit(Move_Id_Reg n) {
+    append(n.lhs).append(" = ").append(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Identifier rhs; */
+  public void visit(Move_Reg_Id n) {
+    append(n.lhs).append(" = ").append(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   FunctionName rhs; */
+  public void visit(Move_Reg_FuncName n) {
+    append(n.lhs).append(" = @").append(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Add n) {
+    append(n.lhs).append(" = ").append(n.arg1).append(" + ").append(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Subtract n) {
+    append(n.lhs).append(" = ").append(n.arg1).append(" - ").append(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(Multiply n) {
+    append(n.lhs).append(" = ").append(n.arg1).append(" * ").append(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register arg1;
+   *   Register arg2; */
+  public void visit(LessThan n) {
+    append(n.lhs).append(" = ").append(n.arg1).append(" < ").append(n.arg2);
+  }
+
+  /*   Register lhs;
+   *   Register base;
+   *   int offset; */
+  public void visit(Load n) {
+    append(n.lhs).append(" = [").append(n.base).append(" + ").append(n.offset).append("]");
+  }
+
+  /*   Register base;
+   *   int offset;
+   *   Register rhs; */
+  public void visit(Store n) {
+    append("[").append(n.base).append(" + ").append(n.offset).append("] = ").append(n.rhs);
+  }
+
+  /*   Register lhs;
+   *   Register size; */
+  public void visit(Alloc n) {
+    append(n.lhs).append(" = alloc(").append(n.size).append(")");
+  }
+
+  /*   Register content; */
+  public void visit(Print n) {
+    append("print(").append(n.content).append(")");
+  }
+
+  /*   String msg; */
+  public void visit(ErrorMessage n) {
+    append("error(").append(n.msg).append(")");
+  }
+
+  /*   Label label; */
+  public void visit(Goto n) {
+    append("goto ").append(n.label);
+  }
+
+  /*   Register condition;
+   *   Label label; */
+  public void visit(IfGoto n) {
+    append("if0 ").append(n.condition).append(" goto ").append(n.label);
+  }
+
+  /*   Register lhs;
+   *   Register callee;
+   *   List<Identifier> args; */
+  public void visit(Call n) {
+    append(n.lhs).append(" = call ").append(n.callee).append("(");
+    list(n.args);
+    append(")");
+  }
+}
@@ -2,6 +2,8 @@ package sparrowv.visitor;
 
 import sparrowv.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import IR.token.*;
@@ -54,6 +56,24 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
                 "  ecall\r\n" + //
                 "  jr ra\r\n\r\n\r\n";
 
+    // bump allocation: gp is the heap pointer and tp the end of the current chunk, neither is used by sparrowv code
+    // a0 = size; takes a fresh chunk (at least ALLOC_CHUNK_SIZE bytes) from sbrk and points gp/tp at it
+    String STD_DEF_ALLOC_REFILL = ".globl alloc_refill\r\n" + //
+                "alloc_refill:\r\n" + //
+                "  li a1, " + ALLOC_CHUNK_SIZE + "\r\n" + //
+                "  bgeu a1, a0, alloc_refill_sbrk\r\n" + //
+                "  mv a1, a0\r\n" + //
+                "alloc_refill_sbrk:\r\n" + //
+                "  mv tp, a1\r\n" + //
+                "  li a0, @sbrk\r\n" + //
+                "  ecall\r\n" + //
+                "  mv gp, a0\r\n" + //
+                "  add tp, gp, tp\r\n" + //
+                "  jr ra\r\n\r\n\r\n";
+
+    String BUMP_ALLOC_INIT = "  li a0, 0\r\n" + //
+                "  jal alloc_refill\r\n";
+
     String DATA_SEG = ".data\r\n" + //
                 "\r\n" + //
                 ".globl msg_0\r\n" + //
@@ -69,6 +89,8 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
 
     String MAIN_ID = "Main";
 
+    static final int ALLOC_CHUNK_SIZE = 65536;
+
     // function generation constants
     String GLOBAL_ID = ".globl";
 
@@ -86,12 +108,20 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
     String ARR_OOB_MSG = "\"array index out of bounds\"";
 
     // translation data structures
+    CodegenOptions codegen_options;
     FrameDataVisitor frame_data_manager;
+    ConstantRegisterVisitor register_constants;
     String current_function_id;
     int label_num;
 
     public RiscVTranslateVisitor() {
-        frame_data_manager = new FrameDataVisitor();
+        this(new CodegenOptions());
+    }
+
+    public RiscVTranslateVisitor(CodegenOptions codegen_options) {
+        this.codegen_options = codegen_options;
+        frame_data_manager = new FrameDataVisitor(codegen_options);
+        register_constants = new ConstantRegisterVisitor();
         current_function_id = "";
         label_num = 0;
     }
@@ -103,32 +133,75 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         List<FunctionDecl> function_declarations = n.funDecls;
         
         // initialize ALL frame data
-        frame_data_manager.generate_frame_data(n);
+        generate_frame_data(n);
         
-        instr_seg += PROGRAM_HEADER;
-        instr_seg += TEXT_SEGMENT;
+        instr_seg += program_header();
 
         for (FunctionDecl fd : function_declarations) {
             instr_seg += fd.accept(this);
         }
-        instr_seg += STD_DEF_PRINT;
-        instr_seg += STD_DEF_ERROR;
-        instr_seg += STD_DEF_ALLOC;
-        instr_seg += DATA_SEG;
+        instr_seg += program_footer();
+        return instr_seg;
+    }
+
+    // pieces of visit(Program), for callers that translate one FunctionDecl at a time
+    public void generate_frame_data(Program n) {
+        frame_data_manager.generate_frame_data(n);
+    }
+
+    public void write_frame_report(Writer out) throws IOException {
+        frame_data_manager.write_frame_report(out);
+    }
+
+    // lay out and translate a single function, then drop its frame data so it does not accumulate
+    public String translate_function(FunctionDecl n) {
+        frame_data_manager.generate_frame_data(n);
+        String instr_seg = n.accept(this);
+        frame_data_manager.release_frame_data(current_function_id);
         return instr_seg;
     }
 
+    // translate a function that was laid out elsewhere (e.g. on another thread), against its own frame data
+    public String translate_function(FunctionDecl n, FrameDataVisitor frame_data) {
+        FrameDataVisitor shared_frame_data = frame_data_manager;
+        frame_data_manager = frame_data;
+        try {
+            return n.accept(this);
+        } finally {
+            frame_data_manager = shared_frame_data;
+        }
+    }
+
+    public String program_header() {
+        // the first chunk is taken before Main runs, so the inline fast path never sees an empty heap
+        if (codegen_options.bump_alloc) return PROGRAM_HEADER + TEXT_SEGMENT.replace("  jal Main\r\n", BUMP_ALLOC_INIT + "  jal Main\r\n");
+        return PROGRAM_HEADER + TEXT_SEGMENT;
+    }
+
+    // only the stubs something still calls; error ends the program, so it gains nothing from being inlined
+    public String program_footer() {
+        String footer = "";
+        if (!codegen_options.inline_runtime) footer += STD_DEF_PRINT;
+        footer += STD_DEF_ERROR;
+        if (codegen_options.bump_alloc) footer += STD_DEF_ALLOC_REFILL;
+        else if (!codegen_options.inline_runtime) footer += STD_DEF_ALLOC;
+        return footer + DATA_SEG;
+    }
+
     /*   Program parent;
     *   FunctionName functionName;
     *   List<Identifier> formalParameters;
     *   Block block; */
     public String visit(FunctionDecl n) {
+        FunctionTranslationEvent event = new FunctionTranslationEvent();
+        event.begin();
         String instr_seg = "";
         String function_name = n.functionName.toString();
         Block block = n.block;
 
         if (function_name.toLowerCase().equals("main")) function_name = MAIN_ID;
         current_function_id = function_name;
+        label_num = 0;  // generated labels only need to be unique within the function
         instr_seg += GLOBAL_ID + " " + function_name + "\n";
         instr_seg += function_name + ":\n";
 
@@ -136,6 +209,14 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
 
         instr_seg += block.accept(this);
         instr_seg += "\r\n\r\n";
+
+        if (event.shouldCommit()) {
+            event.function_name = function_name;
+            event.instruction_count = block.instructions.size();
+            event.frame_size = frame_data_manager.func_frame_size.get(function_name);
+            event.emitted_bytes = instr_seg.length();
+            event.commit();
+        }
         return instr_seg;
     }
 
@@ -155,15 +236,111 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
     *   List<Instruction> instructions;
     *   Identifier return_id; */
     public String visit(Block n) {
-        String instr_seg = "";
+        StringBuilder instr_seg = new StringBuilder();
         List<Instruction> instructions = n.instructions;
         String return_id = n.return_id.toString();
+        Call tail_call = codegen_options.tail_calls ? find_tail_call(n) : null;
+
+        register_constants.reset();
+        if (tail_call == null) {
+            for (Instruction instr : instructions) {
+                instr_seg.append(translate_instruction(instr));
+            }
+            instr_seg.append(restore_caller_frame(current_function_id, return_id));
+        } else {
+            // the call and the move of its result take the place of the return
+            for (Instruction instr : instructions.subList(0, instructions.size() - 2)) {
+                instr_seg.append(translate_instruction(instr));
+            }
+            instr_seg.append(generate_tail_call(tail_call));
+        }
+
+        return instr_seg.toString();
+    }
 
-        for (Instruction instr : instructions) {
-            instr_seg += instr.accept(this);
+    // "r = call f(...)" directly followed by "ret = r", where ret is what the block returns, and with no more
+    // arguments than this function's own argument area holds
+    public Call find_tail_call(Block n) {
+        List<Instruction> instructions = n.instructions;
+        if (instructions.size() < 2) return null;
+        Instruction call = instructions.get(instructions.size() - 2);
+        Instruction move = instructions.get(instructions.size() - 1);
+        if (!(call instanceof Call) || !(move instanceof Move_Id_Reg)) return null;
+
+        Call tail_call = (Call) call;
+        Move_Id_Reg result = (Move_Id_Reg) move;
+        if (!result.lhs.toString().equals(n.return_id.toString())) return null;
+        if (!result.rhs.toString().equals(tail_call.lhs.toString())) return null;
+        if (tail_call.args.size() * 4 > frame_data_manager.get_func_arg_size(current_function_id)) return null;
+        return tail_call;
+    }
+
+    // jump to the callee with this function's frame already popped, so it returns straight to our caller
+    // the callee pops its own arguments on return, so they are placed at the top of our incoming argument area,
+    // which leaves sp exactly where our caller expects it; with static args nothing is popped and they go at the bottom
+    public String generate_tail_call(Call n) {
+        String callee_register = n.callee.toString();
+        String tail_call_seg = "";
+        List<Identifier> arguments = n.args;
+        int arg_shift = codegen_options.static_args ? 0 : frame_data_manager.get_func_arg_size(current_function_id) - arguments.size() * 4;
+        int staging_offset = -arguments.size() * 4;
+
+        // arguments read from our own parameters could be overwritten before they are read, so copy them below sp first
+        boolean reads_parameters = false;
+        for (Identifier arg : arguments) {
+            if (frame_data_manager.is_parameter_var(current_function_id, arg.toString())) reads_parameters = true;
+        }
+        for (int i = 0; i < arguments.size(); i++) {
+            int arg_local_offset = frame_data_manager.get_offset(current_function_id, arguments.get(i).toString());
+            int arg_func_offset = arg_shift + i * 4;
+
+            tail_call_seg += "  lw t6, " + arg_local_offset + "(fp)\r\n";
+            if (reads_parameters) tail_call_seg += "  sw t6, " + (staging_offset + i * 4) + "(sp)\r\n";
+            else tail_call_seg += "  sw t6, " + arg_func_offset + "(fp)\r\n";
+        }
+        if (reads_parameters) {
+            for (int i = 0; i < arguments.size(); i++) {
+                tail_call_seg += "  lw t6, " + (staging_offset + i * 4) + "(sp)\r\n";
+                tail_call_seg += "  sw t6, " + (arg_shift + i * 4) + "(fp)\r\n";
+            }
         }
-        instr_seg += restore_caller_frame(current_function_id, return_id);
+        tail_call_seg += RESTORE_CALLER_RA;
+        tail_call_seg += "  addi sp, fp, " + arg_shift + "\r\n";
+        tail_call_seg += RESTORE_CALLER_FP;
+        tail_call_seg += "  jr " + callee_register + "\r\n";
 
+        return tail_call_seg;
+    }
+
+    // same as instr.accept(this) followed by instr.accept(register_constants), but dispatched on the opcode so the
+    // hot loop above is one switch with direct calls rather than two megamorphic accept() calls per instruction
+    public String translate_instruction(Instruction instr) {
+        String instr_seg;
+        switch (instr.opcode) {
+            case Opcodes.OP_LABEL: instr_seg = visit((LabelInstr) instr); break;
+            case Opcodes.OP_MOVE_REG_INTEGER: instr_seg = visit((Move_Reg_Integer) instr); break;
+            case Opcodes.OP_MOVE_REG_FUNCNAME: instr_seg = visit((Move_Reg_FuncName) instr); break;
+            case Opcodes.OP_ADD: instr_seg = visit((Add) instr); break;
+            case Opcodes.OP_SUBTRACT: instr_seg = visit((Subtract) instr); break;
+            case Opcodes.OP_MULTIPLY: instr_seg = visit((Multiply) instr); break;
+            case Opcodes.OP_LESSTHAN: instr_seg = visit((LessThan) instr); break;
+            case Opcodes.OP_LOAD: instr_seg = visit((Load) instr); break;
+            case Opcodes.OP_STORE: instr_seg = visit((Store) instr); break;
+            case Opcodes.OP_MOVE_REG_REG: instr_seg = visit((Move_Reg_Reg) instr); break;
+            case Opcodes.OP_MOVE_ID_REG: instr_seg = visit((Move_Id_Reg) instr); break;
+            case Opcodes.OP_MOVE_REG_ID: instr_seg = visit((Move_Reg_Id) instr); break;
+            case Opcodes.OP_ALLOC: instr_seg = visit((Alloc) instr); break;
+            case Opcodes.OP_PRINT: instr_seg = visit((Print) instr); break;
+            case Opcodes.OP_ERROR: instr_seg = visit((ErrorMessage) instr); break;
+            case Opcodes.OP_GOTO: instr_seg = visit((Goto) instr); break;
+            case Opcodes.OP_IFGOTO: instr_seg = visit((IfGoto) instr); break;
+            case Opcodes.OP_CALL: instr_seg = visit((Call) instr); break;
+            default:
+                // an Instruction subclass this translator does not know; let it dispatch itself
+                instr_seg = instr.accept(this);
+        }
+        // the constants are only used to strength-reduce multiplies
+        if (codegen_options.strength_reduce) register_constants.update(instr);
         return instr_seg;
     }
 
@@ -183,7 +360,8 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         restore_frame_seg += RESTORE_CALLER_RA;
         restore_frame_seg += RESTORE_CALLER_FP;
         restore_frame_seg += "  addi sp, sp, " + func_frame_size + "\r\n";
-        restore_frame_seg += "  addi sp, sp, " + func_arg_size + "\r\n";
+        // with static args the argument area belongs to the caller's frame
+        if (!codegen_options.static_args) restore_frame_seg += "  addi sp, sp, " + func_arg_size + "\r\n";
         restore_frame_seg += JUMP_TO_RETURN_ADDR;
         
         return restore_frame_seg;
@@ -258,13 +436,58 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         String lhs_register = n.lhs.toString();
         String arg1_register = n.arg1.toString();
         String arg2_register = n.arg2.toString();
-        String instr_seg = "";
+        String instr_seg = null;
 
-        instr_seg += "  mul " + lhs_register + ", " + arg1_register + ", " + arg2_register + "\r\n";
+        // multiplier known from an earlier Move_Reg_Integer: try shifts and adds instead of mul
+        if (codegen_options.strength_reduce && register_constants.is_constant(arg2_register)) {
+            instr_seg = generate_constant_multiply(lhs_register, arg1_register, register_constants.get_constant(arg2_register));
+        }
+        if (instr_seg == null && codegen_options.strength_reduce && register_constants.is_constant(arg1_register)) {
+            instr_seg = generate_constant_multiply(lhs_register, arg2_register, register_constants.get_constant(arg1_register));
+        }
+        if (instr_seg == null) {
+            instr_seg = "  mul " + lhs_register + ", " + arg1_register + ", " + arg2_register + "\r\n";
+        }
         
         return instr_seg;
     }
 
+    // lhs = src * constant using slli/add/sub, with t6 as scratch
+    // returns null when the constant has no short decomposition
+    public String generate_constant_multiply(String lhs_register, String src_register, int constant) {
+        if (constant == 0) return "  li " + lhs_register + ", 0\r\n";
+        if (constant < 0) return null;
+
+        int low_bit = Integer.lowestOneBit(constant);
+        int low_shift = Integer.numberOfTrailingZeros(constant);
+        int high_shift = 31 - Integer.numberOfLeadingZeros(constant);
+        String instr_seg = "";
+
+        if (Integer.bitCount(constant) == 1) {
+            // 2^k
+            instr_seg += generate_shift(lhs_register, src_register, low_shift);
+        } else if (Integer.bitCount(constant) == 2) {
+            // 2^a + 2^b
+            instr_seg += generate_shift("t6", src_register, high_shift);
+            instr_seg += generate_shift(lhs_register, src_register, low_shift);
+            instr_seg += "  add " + lhs_register + ", " + lhs_register + ", t6\r\n";
+        } else if (constant + low_bit > 0 && Integer.bitCount(constant + low_bit) == 1) {
+            // 2^a - 2^b
+            instr_seg += generate_shift("t6", src_register, high_shift + 1);
+            instr_seg += generate_shift(lhs_register, src_register, low_shift);
+            instr_seg += "  sub " + lhs_register + ", t6, " + lhs_register + "\r\n";
+        } else {
+            return null;
+        }
+
+        return instr_seg;
+    }
+
+    public String generate_shift(String lhs_register, String src_register, int shift) {
+        if (shift == 0) return "  mv " + lhs_register + ", " + src_register + "\r\n";
+        return "  slli " + lhs_register + ", " + src_register + ", " + shift + "\r\n";
+    }
+
     /*   Register lhs;
     *   Register arg1;
     *   Register arg2; */
@@ -352,8 +575,33 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         String size_register = n.size.toString();
         String instr_seg = "";
 
-        instr_seg += "  mv a0, " + size_register + "\r\n";
-        instr_seg += "  jal alloc\r\n";
+        if (codegen_options.bump_alloc) {
+            // lhs = gp, gp += size; only when the chunk is used up does alloc_refill make an sbrk ecall
+            // the size is rounded up to a multiple of 4 (in t6) so gp, and every object after this one, stays word aligned
+            String label_fits = current_function_id + "_alloc_fits" + label_num;
+            label_num++;
+
+            instr_seg += "  addi t6, " + size_register + ", 3\r\n";
+            instr_seg += "  andi t6, t6, -4\r\n";
+            instr_seg += "  add a1, gp, t6\r\n";
+            instr_seg += "  bgeu tp, a1, " + label_fits + "\r\n";
+            instr_seg += "  mv a0, t6\r\n";
+            instr_seg += "  jal alloc_refill\r\n";
+            instr_seg += "  add a1, gp, t6\r\n";
+            instr_seg += label_fits + ":\r\n";
+            instr_seg += "  mv " + lhs_register + ", gp\r\n";
+            instr_seg += "  mv gp, a1\r\n";
+            return instr_seg;
+        }
+        if (codegen_options.inline_runtime) {
+            // the body of the alloc stub, with its argument taken straight from the size register
+            instr_seg += "  mv a1, " + size_register + "\r\n";
+            instr_seg += "  li a0, @sbrk\r\n";
+            instr_seg += "  ecall\r\n";
+        } else {
+            instr_seg += "  mv a0, " + size_register + "\r\n";
+            instr_seg += "  jal alloc\r\n";
+        }
         instr_seg += "  mv " + lhs_register + ", a0\r\n";
 
         return instr_seg;
@@ -364,8 +612,18 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         String content_register = n.content.toString();
         String instr_seg = "";
 
-        instr_seg += "  mv a0, " + content_register + "\r\n";
-        instr_seg += "  jal print\r\n";
+        if (codegen_options.inline_runtime) {
+            // the body of the print stub, with its argument taken straight from the content register
+            instr_seg += "  mv a1, " + content_register + "\r\n";
+            instr_seg += "  li a0, @print_int\r\n";
+            instr_seg += "  ecall\r\n";
+            instr_seg += "  li a1, 10\r\n";
+            instr_seg += "  li a0, @print_char\r\n";
+            instr_seg += "  ecall\r\n";
+        } else {
+            instr_seg += "  mv a0, " + content_register + "\r\n";
+            instr_seg += "  jal print\r\n";
+        }
 
         return instr_seg;
     }
@@ -422,8 +680,11 @@ public class RiscVTranslateVisitor implements RetVisitor<String> {
         List<Identifier> arguments = n.args;
         int stack_arg_size = arguments.size() * 4;
 
-        instr_seg += "  li t6, " + stack_arg_size + "\r\n";
-        instr_seg += "  sub sp, sp, t6\r\n";
+        // with static args the frame already ends in an argument area large enough for every call
+        if (!codegen_options.static_args) {
+            instr_seg += "  li t6, " + stack_arg_size + "\r\n";
+            instr_seg += "  sub sp, sp, t6\r\n";
+        }
         for (int i = 0; i < arguments.size(); i++) {
             Identifier arg = arguments.get(i);
             String arg_id = arg.toString();
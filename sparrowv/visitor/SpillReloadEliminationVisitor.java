@@ -0,0 +1,236 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import sparrowv.*;
+import IR.token.*;
+import sparrowv.visitor.ControlFlowGraph.BasicBlock;
+
+// removes reloads of stack slots whose value is still sitting in a register, and stores to slots never read again
+public class SpillReloadEliminationVisitor extends DepthFirst {
+    public LinkedHashMap<String, Integer> func_reloads_replaced;    // "r = x" turned into "r = q"
+    public LinkedHashMap<String, Integer> func_reloads_removed;     // "r = x" where r already holds x
+    public LinkedHashMap<String, Integer> func_stores_removed;      // "x = r" where x is never read again
+
+    String cur_func_id;
+    UseDefVisitor use_def;
+
+    public SpillReloadEliminationVisitor() {
+        func_reloads_replaced = new LinkedHashMap<>();
+        func_reloads_removed = new LinkedHashMap<>();
+        func_stores_removed = new LinkedHashMap<>();
+        cur_func_id = "";
+        use_def = new UseDefVisitor();
+    }
+
+    // helpers
+    void count(LinkedHashMap<String, Integer> counter) { counter.put(cur_func_id, counter.get(cur_func_id) + 1); }
+    public int get_total(LinkedHashMap<String, Integer> counter) {
+        int total = 0;
+        for (int c : counter.values()) total += c;
+        return total;
+    }
+
+    // debug
+    public void print_elimination_report() {
+        System.err.println("Spill/reload elimination:");
+        for (String func_name : func_reloads_replaced.keySet()) {
+            System.err.println("\t" + func_name + " : " + func_reloads_replaced.get(func_name) + " reloads replaced, "
+                + func_reloads_removed.get(func_name) + " reloads removed, "
+                + func_stores_removed.get(func_name) + " stores removed");
+        }
+        System.err.println("\ttotal : " + get_total(func_reloads_replaced) + " reloads replaced, "
+            + get_total(func_reloads_removed) + " reloads removed, "
+            + get_total(func_stores_removed) + " stores removed");
+    }
+
+
+    /*   Program parent;
+    *   FunctionName functionName;
+    *   List<Identifier> formalParameters;
+    *   Block block; */
+    public void visit(FunctionDecl n) {
+        cur_func_id = n.functionName.toString();
+        func_reloads_replaced.put(cur_func_id, 0);
+        func_reloads_removed.put(cur_func_id, 0);
+        func_stores_removed.put(cur_func_id, 0);
+        n.block.accept(this);
+    }
+
+    /*   FunctionDecl parent;
+    *   List<Instruction> instructions;
+    *   Identifier return_id; */
+    public void visit(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        if (!cfg.well_formed) return;
+
+        forward_reloads(n, cfg);
+        remove_dead_stores(n);
+        for (Instruction i : n.instructions) i.parent = n;
+    }
+
+    // forward must-analysis: which stack slot identifier does each register currently hold
+    void forward_reloads(Block n, ControlFlowGraph cfg) {
+        List<HashMap<String, String>> block_in = new ArrayList<>();  // null = not reached yet
+        for (int b = 0; b < cfg.blocks.size(); b++) block_in.add(null);
+        if (cfg.entry() != null) block_in.set(0, new HashMap<>());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : cfg.blocks) {
+                if (block_in.get(block.index) == null) continue;
+                HashMap<String, String> holds = new HashMap<>(block_in.get(block.index));
+
+                for (int idx = block.start; idx < block.end; idx++) {
+                    transfer(n.instructions.get(idx), holds, null);
+                }
+                for (BasicBlock succ : block.successors) {
+                    HashMap<String, String> succ_in = block_in.get(succ.index);
+                    HashMap<String, String> merged = meet(succ_in, holds);
+
+                    if (succ_in == null || !merged.equals(succ_in)) {
+                        block_in.set(succ.index, merged);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        List<Instruction> rewritten = new ArrayList<>();
+        for (BasicBlock block : cfg.blocks) {
+            HashMap<String, String> holds = block_in.get(block.index);
+            holds = holds == null ? new HashMap<>() : new HashMap<>(holds);
+
+            for (int idx = block.start; idx < block.end; idx++) {
+                transfer(n.instructions.get(idx), holds, rewritten);
+            }
+        }
+        n.instructions = rewritten;
+    }
+
+    HashMap<String, String> meet(HashMap<String, String> a, HashMap<String, String> b) {
+        if (a == null) return new HashMap<>(b);
+        HashMap<String, String> merged = new HashMap<>();
+
+        for (String reg : a.keySet()) {
+            if (a.get(reg).equals(b.get(reg))) merged.put(reg, a.get(reg));
+        }
+        return merged;
+    }
+
+    String find_holder(HashMap<String, String> holds, String id) {
+        for (String reg : holds.keySet()) {
+            if (holds.get(reg).equals(id)) return reg;
+        }
+        return null;
+    }
+
+    // apply one instruction to the register -> identifier map; if out is given, emit the (possibly rewritten) instruction
+    void transfer(Instruction i, HashMap<String, String> holds, List<Instruction> out) {
+        if (i instanceof Move_Reg_Id) {
+            Move_Reg_Id reload = (Move_Reg_Id) i;
+            String lhs_register = reload.lhs.toString();
+            String rhs_id = reload.rhs.toString();
+            String holder = rhs_id.equals(holds.get(lhs_register)) ? lhs_register : find_holder(holds, rhs_id);
+
+            if (out != null) {
+                if (holder == null) {
+                    out.add(i);
+                } else if (holder.equals(lhs_register)) {
+                    count(func_reloads_removed);
+                } else {
+                    out.add(new Move_Reg_Reg(reload.lhs, new Register(holder)));
+                    count(func_reloads_replaced);
+                }
+            }
+            holds.put(lhs_register, rhs_id);
+            return;
+        }
+        if (out != null) out.add(i);
+
+        if (i instanceof Move_Id_Reg) {
+            Move_Id_Reg store = (Move_Id_Reg) i;
+            String lhs_id = store.lhs.toString();
+
+            holds.values().removeIf(id -> id.equals(lhs_id));
+            holds.put(store.rhs.toString(), lhs_id);
+        } else if (i instanceof Move_Reg_Reg) {
+            Move_Reg_Reg move = (Move_Reg_Reg) i;
+            String rhs_id = holds.get(move.rhs.toString());
+
+            holds.remove(move.lhs.toString());
+            if (rhs_id != null) holds.put(move.lhs.toString(), rhs_id);
+        } else if (i instanceof Call) {
+            // the callee is free to clobber any register
+            holds.clear();
+        } else {
+            use_def.compute(i);
+            for (String reg : use_def.defined_registers) holds.remove(reg);
+        }
+    }
+
+    // backward liveness of identifiers: drop "x = r" when x is not read on any path before being overwritten
+    void remove_dead_stores(Block n) {
+        ControlFlowGraph cfg = new ControlFlowGraph(n.instructions);
+        String return_id = n.return_id.toString();
+        List<HashSet<String>> live_in = new ArrayList<>();
+        for (int b = 0; b < cfg.blocks.size(); b++) live_in.add(new HashSet<>());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = cfg.blocks.size() - 1; b >= 0; b--) {
+                BasicBlock block = cfg.blocks.get(b);
+                HashSet<String> live = live_ids_out(block, live_in, return_id);
+
+                for (int idx = block.end - 1; idx >= block.start; idx--) {
+                    use_def.compute(n.instructions.get(idx));
+                    live.removeAll(use_def.defined_ids);
+                    live.addAll(use_def.used_ids);
+                }
+                if (!live.equals(live_in.get(b))) {
+                    live_in.set(b, live);
+                    changed = true;
+                }
+            }
+        }
+
+        List<Instruction> kept = new ArrayList<>();
+        for (BasicBlock block : cfg.blocks) {
+            HashSet<String> live = live_ids_out(block, live_in, return_id);
+            ArrayList<Instruction> block_kept = new ArrayList<>();
+
+            for (int idx = block.end - 1; idx >= block.start; idx--) {
+                Instruction i = n.instructions.get(idx);
+                use_def.compute(i);
+
+                if (i instanceof Move_Id_Reg && !live.contains(use_def.defined_ids.get(0))) {
+                    count(func_stores_removed);
+                    continue;
+                }
+                live.removeAll(use_def.defined_ids);
+                live.addAll(use_def.used_ids);
+                block_kept.add(i);
+            }
+            Collections.reverse(block_kept);
+            kept.addAll(block_kept);
+        }
+        n.instructions = kept;
+    }
+
+    HashSet<String> live_ids_out(BasicBlock block, List<HashSet<String>> live_in, String return_id) {
+        HashSet<String> live = new HashSet<>();
+
+        if (block.exits) live.add(return_id);
+        for (BasicBlock succ : block.successors) {
+            live.addAll(live_in.get(succ.index));
+        }
+        return live;
+    }
+}
@@ -0,0 +1,147 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sparrowv.*;
+import IR.token.*;
+
+// collects the registers and identifiers (stack slots) read and written by a single instruction
+public class UseDefVisitor extends DepthFirst {
+    public List<String> used_registers;
+    public List<String> defined_registers;
+    public List<String> used_ids;
+    public List<String> defined_ids;
+
+    // a callee may read its arguments from these registers
+    public static final String[] ARGUMENT_REGISTERS = { "a2", "a3", "a4", "a5", "a6", "a7" };
+
+    public UseDefVisitor() {
+        used_registers = new ArrayList<>();
+        defined_registers = new ArrayList<>();
+        used_ids = new ArrayList<>();
+        defined_ids = new ArrayList<>();
+    }
+
+    public void compute(Instruction i) {
+        used_registers.clear();
+        defined_registers.clear();
+        used_ids.clear();
+        defined_ids.clear();
+        i.accept(this);
+    }
+
+
+    /*   Register lhs;
+    *   int rhs; */
+    public void visit(Move_Reg_Integer n) {
+        defined_registers.add(n.lhs.toString());
+    }
+
+    /*   Register lhs;
+    *   FunctionName rhs; */
+    public void visit(Move_Reg_FuncName n) {
+        defined_registers.add(n.lhs.toString());
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Add n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.arg1.toString());
+        used_registers.add(n.arg2.toString());
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Subtract n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.arg1.toString());
+        used_registers.add(n.arg2.toString());
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Multiply n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.arg1.toString());
+        used_registers.add(n.arg2.toString());
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(LessThan n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.arg1.toString());
+        used_registers.add(n.arg2.toString());
+    }
+
+    /*   Register lhs;
+    *   Register base;
+    *   int offset; */
+    public void visit(Load n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.base.toString());
+    }
+
+    /*   Register base;
+    *   int offset;
+    *   Register rhs; */
+    public void visit(Store n) {
+        used_registers.add(n.base.toString());
+        used_registers.add(n.rhs.toString());
+    }
+
+    /*   Register lhs;
+    *   Register rhs; */
+    public void visit(Move_Reg_Reg n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.rhs.toString());
+    }
+
+    /*   Identifier lhs;
+    *   Register rhs; */
+    public void visit(Move_Id_Reg n) {
+        defined_ids.add(n.lhs.toString());
+        used_registers.add(n.rhs.toString());
+    }
+
+    /*   Register lhs;
+    *   Identifier rhs; */
+    public void visit(Move_Reg_Id n) {
+        defined_registers.add(n.lhs.toString());
+        used_ids.add(n.rhs.toString());
+    }
+
+    /*   Register lhs;
+    *   Register size; */
+    public void visit(Alloc n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.size.toString());
+    }
+
+    /*   Register content; */
+    public void visit(Print n) {
+        used_registers.add(n.content.toString());
+    }
+
+    /*   Register condition;
+    *   Label label; */
+    public void visit(IfGoto n) {
+        used_registers.add(n.condition.toString());
+    }
+
+    /*   Register lhs;
+    *   Register callee;
+    *   List<Identifier> args; */
+    public void visit(Call n) {
+        defined_registers.add(n.lhs.toString());
+        used_registers.add(n.callee.toString());
+        for (String arg_register : ARGUMENT_REGISTERS) used_registers.add(arg_register);
+        for (Identifier arg : n.args) used_ids.add(arg.toString());
+    }
+}
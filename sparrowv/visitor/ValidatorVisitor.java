@@ -0,0 +1,257 @@
+package sparrowv.visitor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import sparrowv.*;
+import IR.errors.ErrorReport;
+import IR.errors.InvalidProgramException;
+import IR.registers.Registers;
+import IR.token.*;
+
+// runs every ErrorReport check in one pass over the program, using hash sets for labels and function names
+//   - visit(Program) reports all errors of the program at once
+//   - visit(FunctionDecl) validates a single function as it streams by; call finish() after the last one,
+//     since @F may name a function that comes later
+// either way an invalid program ends in an InvalidProgramException carrying the ErrorReport message
+public class ValidatorVisitor extends DepthFirst {
+    public ErrorReport report;
+
+    HashSet<String> function_names;
+    List<String> declared_functions;
+    List<Move_Reg_FuncName> forward_references;     // @F seen before F was declared
+    List<String> forward_reference_functions;
+
+    String cur_func_id;
+    HashSet<String> block_labels;
+    int function_count;
+
+    public ValidatorVisitor() {
+        report = new ErrorReport();
+        function_names = new HashSet<>();
+        declared_functions = new ArrayList<>();
+        forward_references = new ArrayList<>();
+        forward_reference_functions = new ArrayList<>();
+        cur_func_id = "";
+        block_labels = new HashSet<>();
+        function_count = 0;
+    }
+
+    // checks that need every function to have been seen
+    public void finish() {
+        report.checkProgramIsNonempty(function_count);
+        report.checkForDuplicates("The program", "function name", declared_functions);
+        for (int i = 0; i < forward_references.size(); i++) {
+            Move_Reg_FuncName reference = forward_references.get(i);
+            if (function_names.contains(reference.rhs.toString())) continue;
+
+            cur_func_id = forward_reference_functions.get(i);
+            report.checkFunctionName(false, place(reference), reference.rhs);
+        }
+        if (!report.getValid()) throw new InvalidProgramException(report);
+    }
+
+    // helpers, the place string is only built once something is wrong
+    String place(Instruction i) { return "The instruction " + i + " in function " + cur_func_id; }
+    void check_register(Instruction i, Register r) {
+        if (!Registers.riscVregs.contains(r.toString())) report.checkRegister(place(i), r);
+    }
+    void check_identifier(Instruction i, Identifier id) {
+        if (Registers.riscVregs.contains(id.toString())) report.checkIdentifier(place(i), id);
+    }
+    void check_offset(Instruction i, int offset) {
+        if (offset < 0 || offset % 4 != 0) report.checkOffset(place(i), offset);
+    }
+    void check_label(Instruction i, Label label) {
+        if (!block_labels.contains(label.toString())) report.checkLabel(false, place(i), label);
+    }
+    List<String> names(List<Identifier> ids) {
+        List<String> names = new ArrayList<>();
+        for (Identifier id : ids) names.add(id.toString());
+        return names;
+    }
+
+
+    /*   List<FunctionDecl> funDecls; */
+    public void visit(Program n) {
+        for (FunctionDecl fd : n.funDecls) check_function(fd);
+        finish();
+    }
+
+    /*   Program parent;
+    *   FunctionName functionName;
+    *   List<Identifier> formalParameters;
+    *   Block block; */
+    public void visit(FunctionDecl n) {
+        check_function(n);
+        if (!report.getValid()) throw new InvalidProgramException(report);
+    }
+
+    void check_function(FunctionDecl n) {
+        cur_func_id = n.functionName.toString();
+        if (function_count == 0) report.checkFirstFunctionHasZeroParameters(n.formalParameters);
+        function_count++;
+        function_names.add(cur_func_id);
+        declared_functions.add(cur_func_id);
+
+        HashSet<String> params = new HashSet<>();
+        boolean duplicate_params = false;
+        for (Identifier param : n.formalParameters) {
+            if (Registers.riscVregs.contains(param.toString())) report.checkIdentifier("The function " + cur_func_id, param);
+            if (!params.add(param.toString())) duplicate_params = true;
+        }
+        if (duplicate_params) report.checkForDuplicates("The function " + cur_func_id, "parameter", names(n.formalParameters));
+
+        n.block.accept(this);
+    }
+
+    /*   FunctionDecl parent;
+    *   List<Instruction> instructions;
+    *   Identifier return_id; */
+    public void visit(Block n) {
+        // labels may be used before they are defined, so collect them first
+        block_labels.clear();
+        boolean duplicate_labels = false;
+        for (Instruction i : n.instructions) {
+            if (i instanceof LabelInstr && !block_labels.add(((LabelInstr) i).label.toString())) duplicate_labels = true;
+        }
+        if (duplicate_labels) {
+            List<String> labels = new ArrayList<>();
+            for (Instruction i : n.instructions) {
+                if (i instanceof LabelInstr) labels.add(((LabelInstr) i).label.toString());
+            }
+            report.checkForDuplicates("The function " + cur_func_id, "label", labels);
+        }
+
+        for (Instruction i : n.instructions) i.accept(this);
+        if (Registers.riscVregs.contains(n.return_id.toString())) {
+            report.checkIdentifier("The return statement of function " + cur_func_id, n.return_id);
+        }
+    }
+
+    /*   Register lhs;
+    *   int rhs; */
+    public void visit(Move_Reg_Integer n) {
+        check_register(n, n.lhs);
+    }
+
+    /*   Register lhs;
+    *   FunctionName rhs; */
+    public void visit(Move_Reg_FuncName n) {
+        check_register(n, n.lhs);
+        if (!function_names.contains(n.rhs.toString())) {
+            // may still be declared further down
+            forward_references.add(n);
+            forward_reference_functions.add(cur_func_id);
+        }
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Add n) {
+        check_register(n, n.lhs);
+        check_register(n, n.arg1);
+        check_register(n, n.arg2);
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Subtract n) {
+        check_register(n, n.lhs);
+        check_register(n, n.arg1);
+        check_register(n, n.arg2);
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(Multiply n) {
+        check_register(n, n.lhs);
+        check_register(n, n.arg1);
+        check_register(n, n.arg2);
+    }
+
+    /*   Register lhs;
+    *   Register arg1;
+    *   Register arg2; */
+    public void visit(LessThan n) {
+        check_register(n, n.lhs);
+        check_register(n, n.arg1);
+        check_register(n, n.arg2);
+    }
+
+    /*   Register lhs;
+    *   Register base;
+    *   int offset; */
+    public void visit(Load n) {
+        check_register(n, n.lhs);
+        check_register(n, n.base);
+        check_offset(n, n.offset);
+    }
+
+    /*   Register base;
+    *   int offset;
+    *   Register rhs; */
+    public void visit(Store n) {
+        check_register(n, n.base);
+        check_offset(n, n.offset);
+        check_register(n, n.rhs);
+    }
+
+    /*   Register lhs;
+    *   Register rhs; */
+    public void visit(Move_Reg_Reg n) {
+        check_register(n, n.lhs);
+        check_register(n, n.rhs);
+    }
+
+    /*   Identifier lhs;
+    *   Register rhs; */
+    public void visit(Move_Id_Reg n) {
+        check_identifier(n, n.lhs);
+        check_register(n, n.rhs);
+    }
+
+    /*   Register lhs;
+    *   Identifier rhs; */
+    public void visit(Move_Reg_Id n) {
+        check_register(n, n.lhs);
+        check_identifier(n, n.rhs);
+    }
+
+    /*   Register lhs;
+    *   Register size; */
+    public void visit(Alloc n) {
+        check_register(n, n.lhs);
+        check_register(n, n.size);
+    }
+
+    /*   Register content; */
+    public void visit(Print n) {
+        check_register(n, n.content);
+    }
+
+    /*   Label label; */
+    public void visit(Goto n) {
+        check_label(n, n.label);
+    }
+
+    /*   Register condition;
+    *   Label label; */
+    public void visit(IfGoto n) {
+        check_register(n, n.condition);
+        check_label(n, n.label);
+    }
+
+    /*   Register lhs;
+    *   Register callee;
+    *   List<Identifier> args; */
+    public void visit(Call n) {
+        check_register(n, n.lhs);
+        check_register(n, n.callee);
+        for (Identifier arg : n.args) check_identifier(n, arg);
+    }
+}
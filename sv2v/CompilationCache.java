@@ -0,0 +1,151 @@
+package sv2v;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// on-disk, content-addressed store of emitted RISC-V, shared by any number of SV2V processes
+//   - entries are written to a temp file and atomically renamed, so readers never see partial output
+//   - an entry's modification time is its last use; trim() evicts least recently used entries
+//   - a reader that loses a race with eviction simply sees a miss
+public class CompilationCache {
+    // part of every key; bump it whenever the emitted RISC-V or the sparrowv printer changes (function keys hash the
+    // printed function), so stale entries are never reused
+    //   sv2v-2: multiplies by known constants are only strength-reduced under -strength-reduce
+    //   sv2v-3: -bump-alloc rounds each allocation up to a multiple of 4
+    public static final String CACHE_VERSION = "sv2v-3";
+
+    static final String ENTRY_SUFFIX = ".s";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final String LOCK_FILE = ".lock";
+    static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+
+    Path directory;
+    long max_bytes;
+
+    public int hits;
+    public int misses;
+
+    public CompilationCache(Path directory, long max_bytes) throws IOException {
+        this.directory = directory;
+        this.max_bytes = max_bytes;
+        Files.createDirectories(directory);
+    }
+
+    // hex SHA-256 over all parts, each prefixed by its length so that part boundaries matter
+    public static String hash(byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] part : parts) {
+                digest.update(ByteBuffer.allocate(4).putInt(part.length).array());
+                digest.update(part);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hash(String... parts) {
+        byte[][] bytes = new byte[parts.length][];
+        for (int i = 0; i < parts.length; i++) bytes[i] = parts[i].getBytes(StandardCharsets.UTF_8);
+        return hash(bytes);
+    }
+
+    Path entry_path(String key) { return directory.resolve(key + ENTRY_SUFFIX); }
+
+    // cached text for key, or null on a miss
+    public String get(String key) {
+        Path entry = entry_path(key);
+        try {
+            String value = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+            try {
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // evicted between read and touch; the value we read is still valid
+            }
+            hits++;
+            return value;
+        } catch (IOException e) {
+            misses++;
+            return null;
+        }
+    }
+
+    public void put(String key, String value) throws IOException {
+        Path temp = directory.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        Files.write(temp, value.getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, entry_path(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // evict least recently used entries until the cache fits in max_bytes
+    // only one process trims at a time; the others skip since the work is being done anyway
+    public void trim() throws IOException {
+        try (FileChannel lock_channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lock_channel.tryLock()) {
+            if (lock == null) return;
+
+            List<Path> entries = new ArrayList<>();
+            List<Long> sizes = new ArrayList<>();
+            List<Long> last_used = new ArrayList<>();
+            long total_bytes = 0;
+            long now = System.currentTimeMillis();
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    try {
+                        long modified = Files.getLastModifiedTime(path).toMillis();
+                        if (name.endsWith(TEMP_SUFFIX)) {
+                            // left behind by a process that died mid-write
+                            if (now - modified > STALE_TEMP_MILLIS) Files.deleteIfExists(path);
+                            continue;
+                        }
+                        if (!name.endsWith(ENTRY_SUFFIX)) continue;
+
+                        long size = Files.size(path);
+                        entries.add(path);
+                        sizes.add(size);
+                        last_used.add(modified);
+                        total_bytes += size;
+                    } catch (NoSuchFileException e) {
+                        // removed by someone else while listing
+                    }
+                }
+            }
+            if (total_bytes <= max_bytes) return;
+
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) order.add(i);
+            order.sort((a, b) -> Long.compare(last_used.get(a), last_used.get(b)));
+
+            for (int i : order) {
+                if (total_bytes <= max_bytes) break;
+                Files.deleteIfExists(entries.get(i));
+                total_bytes -= sizes.get(i);
+            }
+        }
+    }
+}
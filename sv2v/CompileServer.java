@@ -0,0 +1,222 @@
+package sv2v;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import IR.ParseException;
+
+// local compile server, so build tools can translate without starting a JVM per file
+//   - listens on a unix domain socket ("unix:/tmp/sv2v.sock") or a loopback tcp port ("tcp:7878")
+//   - each connection gets its own virtual thread where the JVM has them (Java 21+), else a cached platform thread;
+//     translation itself always runs on the Compiler's bounded pool of platform workers
+//
+// Protocol, any number of requests per connection, integers big-endian:
+//   request  'C' <int length> <sparrowv source>    compile
+//            'S'                                    statistics
+//   response <byte status: 0 ok, 1 error> <int length> <riscv, error message or statistics JSON>
+// A compile request whose length is negative or above max_source_bytes is answered with an error and the connection
+// closed, before anything is allocated for it.
+public class CompileServer implements AutoCloseable {
+    public static final byte REQUEST_COMPILE = 'C';
+    public static final byte REQUEST_STATS = 'S';
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    static final int LATENCY_SAMPLES = 4096;    // percentiles are over the most recent requests
+    public static final int DEFAULT_MAX_SOURCE_BYTES = 64 << 20;
+
+    SocketAddress address;
+    ServerSocketChannel server;
+    Compiler compiler;
+    int max_source_bytes;
+    ExecutorService connections;
+    AtomicInteger open_connections;
+
+    long[] latency_nanos;
+    long latency_count;
+    long completed;
+    long failed;
+
+    public CompileServer(SocketAddress address, Compiler compiler) throws IOException {
+        this(address, compiler, DEFAULT_MAX_SOURCE_BYTES);
+    }
+
+    public CompileServer(SocketAddress address, Compiler compiler, int max_source_bytes) throws IOException {
+        this.address = address;
+        this.compiler = compiler;
+        this.max_source_bytes = max_source_bytes;
+        if (address instanceof UnixDomainSocketAddress) {
+            // a socket file left behind by a server that did not shut down cleanly
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        connections = new_connection_executor();
+        open_connections = new AtomicInteger();
+        latency_nanos = new long[LATENCY_SAMPLES];
+    }
+
+    // "unix:<path>", "tcp:<port>" or just "<port>"; tcp is only ever bound to the loopback interface
+    public static SocketAddress parse_address(String spec) {
+        if (spec.startsWith("unix:")) return UnixDomainSocketAddress.of(spec.substring("unix:".length()));
+        if (spec.startsWith("tcp:")) spec = spec.substring("tcp:".length());
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(spec));
+    }
+
+    static ExecutorService new_connection_executor() {
+        try {
+            Method virtual_threads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual_threads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(connection -> {
+                Thread thread = new Thread(connection, "sv2v-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public SocketAddress local_address() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    // accepts connections until close()
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            connections.submit(() -> handle(client));
+        }
+    }
+
+    void handle(SocketChannel client) {
+        open_connections.incrementAndGet();
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            while (true) {
+                byte request;
+                try {
+                    request = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+
+                if (request == REQUEST_STATS) {
+                    reply(out, STATUS_OK, stats_json().getBytes(StandardCharsets.US_ASCII));
+                } else if (request == REQUEST_COMPILE) {
+                    int length = in.readInt();
+                    if (length < 0 || length > max_source_bytes) {
+                        // the rest of the stream cannot be trusted to hold that many bytes, so give up on it
+                        reply(out, STATUS_ERROR, ("source length " + length + " is outside 0.." + max_source_bytes)
+                            .getBytes(StandardCharsets.US_ASCII));
+                        return;
+                    }
+                    byte[] source = new byte[length];
+                    in.readFully(source);
+                    compile(source, out);
+                } else {
+                    reply(out, STATUS_ERROR, ("unknown request " + request).getBytes(StandardCharsets.US_ASCII));
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // the client went away mid-request; nothing to answer
+        } finally {
+            open_connections.decrementAndGet();
+        }
+    }
+
+    void compile(byte[] source, DataOutputStream out) throws IOException {
+        long start = System.nanoTime();
+        try {
+            ByteBuffer translation = compiler.compile(ByteBuffer.wrap(source));
+            record(System.nanoTime() - start, true);
+
+            byte[] assembly = new byte[translation.remaining()];
+            translation.get(assembly);
+            reply(out, STATUS_OK, assembly);
+        } catch (ParseException | TimeoutException | RuntimeException e) {
+            record(System.nanoTime() - start, false);
+            String message = e instanceof TimeoutException ? "compilation timed out" : String.valueOf(e.getMessage());
+            reply(out, STATUS_ERROR, message.getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            // server shutting down
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    void reply(DataOutputStream out, byte status, byte[] payload) throws IOException {
+        out.writeByte(status);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    synchronized void record(long nanos, boolean succeeded) {
+        latency_nanos[(int) (latency_count % LATENCY_SAMPLES)] = nanos;
+        latency_count++;
+        if (succeeded) completed++;
+        else failed++;
+    }
+
+    public synchronized String stats_json() {
+        long[] samples = Arrays.copyOf(latency_nanos, (int) Math.min(latency_count, LATENCY_SAMPLES));
+        Arrays.sort(samples);
+
+        return "{\"queue_depth\":" + compiler.queue_depth()
+            + ",\"active_jobs\":" + compiler.active_jobs()
+            + ",\"open_connections\":" + open_connections.get()
+            + ",\"completed\":" + completed
+            + ",\"failed\":" + failed
+            + ",\"latency_ms\":{\"p50\":" + percentile_ms(samples, 50)
+            + ",\"p90\":" + percentile_ms(samples, 90)
+            + ",\"p99\":" + percentile_ms(samples, 99)
+            + ",\"max\":" + percentile_ms(samples, 100) + "}}";
+    }
+
+    // nearest-rank percentile of sorted samples
+    static String percentile_ms(long[] sorted, int percentile) {
+        if (sorted.length == 0) return "0";
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return String.format(Locale.ROOT, "%.3f", sorted[Math.max(rank, 1) - 1] / 1e6);
+    }
+
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+}
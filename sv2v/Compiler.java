@@ -0,0 +1,155 @@
+package sv2v;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import IR.ParseException;
+import IR.direct.ByteLexer;
+import IR.direct.DirectParser;
+import IR.direct.MappedFileLexer;
+import IR.direct.SparrowVBuilder;
+import IR.direct.TokenSource;
+import sparrowv.FunctionDecl;
+import sparrowv.Instruction;
+import sparrowv.Program;
+import sparrowv.visitor.CodegenOptions;
+import sparrowv.visitor.DeadCodeEliminationVisitor;
+import sparrowv.visitor.DepthFirst;
+import sparrowv.visitor.RiscVTranslateVisitor;
+import sparrowv.visitor.SpillReloadEliminationVisitor;
+import sparrowv.visitor.ValidatorVisitor;
+
+// thread-safe entry point for embedding SV2V in a long running process, e.g. a build daemon
+//   - jobs run on a fixed pool of workers; every job builds its own lexer, parser, passes and translator,
+//     so nothing mutable is shared between jobs (the JavaCC parser, which is static, is never used)
+//   - a job checks for cancellation between functions; cancel the Future or let a timeout do it
+//   - options are the translation flags SV2V accepts on the command line, e.g. -dce, -spill-elim or -passes=dce
+//   - programs are validated first; an invalid one fails its job with an InvalidProgramException
+public class Compiler implements AutoCloseable {
+    ThreadPoolExecutor workers;
+    List<String> options;
+    long timeout_millis;    // 0 = wait as long as it takes
+
+    public Compiler(int worker_count) {
+        this(worker_count, new ArrayList<>(), 0);
+    }
+
+    public Compiler(int worker_count, List<String> options, long timeout_millis) {
+        AtomicInteger worker_id = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(worker_count, worker_count, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), job -> {
+            Thread worker = new Thread(job, "sv2v-worker-" + worker_id.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+        this.options = new ArrayList<>(options);
+        this.timeout_millis = timeout_millis;
+    }
+
+    // jobs submitted but not yet picked up by a worker
+    public int queue_depth() {
+        return workers.getQueue().size();
+    }
+
+    public int active_jobs() {
+        return workers.getActiveCount();
+    }
+
+    // asynchronous forms: the Future can be cancelled, and get() throws the job's ParseException wrapped in an ExecutionException
+    public Future<ByteBuffer> submit(ByteBuffer source) {
+        ByteBuffer input = source.duplicate();
+        return workers.submit(() -> {
+            StringWriter out = new StringWriter();
+            translate(new ByteLexer(input), out);
+            return ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.US_ASCII));
+        });
+    }
+
+    public Future<Void> submit(Path in, Path out) {
+        return workers.submit(() -> {
+            try (MappedFileLexer tokens = new MappedFileLexer(in);
+                 BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.US_ASCII)) {
+                translate(tokens, writer);
+            }
+            return null;
+        });
+    }
+
+    // blocking forms, bounded by the configured timeout
+    public ByteBuffer compile(ByteBuffer source) throws ParseException, IOException, InterruptedException, TimeoutException {
+        return await(submit(source), timeout_millis);
+    }
+
+    public ByteBuffer compile(ByteBuffer source, long timeout, TimeUnit unit) throws ParseException, IOException, InterruptedException, TimeoutException {
+        return await(submit(source), unit.toMillis(timeout));
+    }
+
+    public void compile(Path in, Path out) throws ParseException, IOException, InterruptedException, TimeoutException {
+        await(submit(in, out), timeout_millis);
+    }
+
+    public void compile(Path in, Path out, long timeout, TimeUnit unit) throws ParseException, IOException, InterruptedException, TimeoutException {
+        await(submit(in, out), unit.toMillis(timeout));
+    }
+
+    // waits for a job, cancelling it if the wait is cut short, and rethrows whatever the job failed with
+    static <T> T await(Future<T> job, long timeout_millis) throws ParseException, IOException, InterruptedException, TimeoutException {
+        try {
+            return timeout_millis > 0 ? job.get(timeout_millis, TimeUnit.MILLISECONDS) : job.get();
+        } catch (TimeoutException | InterruptedException e) {
+            job.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ParseException) throw (ParseException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // one function at a time, the same as SV2V -stream
+    void translate(TokenSource tokens, Writer out) throws ParseException, IOException {
+        ValidatorVisitor validator = options.contains("-no-validate") ? null : new ValidatorVisitor();
+        List<DepthFirst> passes = new ArrayList<>();
+        if (validator != null) passes.add(validator);
+        if (options.contains("-spill-elim")) passes.add(new SpillReloadEliminationVisitor());
+        if (options.contains("-dce")) passes.add(new DeadCodeEliminationVisitor(options.contains("-flat-ir")));
+        PassManager pass_manager = PassManager.from_options(options, new PhaseMetrics(false));
+        if (pass_manager != null) passes.add(pass_manager.as_function_pass());
+
+        DirectParser<Program, FunctionDecl, Instruction> parser = new DirectParser<>(tokens, new SparrowVBuilder());
+        RiscVTranslateVisitor rvt = new RiscVTranslateVisitor(CodegenOptions.from_options(options));
+        out.write(rvt.program_header());
+
+        FunctionDecl fd;
+        while ((fd = parser.NextFunction()) != null) {
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("compilation cancelled");
+
+            for (DepthFirst pass : passes) fd.accept(pass);
+            out.write(rvt.translate_function(fd));
+        }
+        out.write(rvt.program_footer());
+        if (validator != null) validator.finish();
+    }
+
+    public void close() {
+        workers.shutdownNow();
+    }
+}
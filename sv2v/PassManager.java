@@ -0,0 +1,230 @@
+package sv2v;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import IR.errors.InvalidProgramException;
+import sparrowv.FunctionDecl;
+import sparrowv.Program;
+import sparrowv.visitor.CheckEliminationVisitor;
+import sparrowv.visitor.DeadCodeEliminationVisitor;
+import sparrowv.visitor.DepthFirst;
+import sparrowv.visitor.SpillReloadEliminationVisitor;
+import sparrowv.visitor.ValidatorVisitor;
+
+// runs the sparrowv passes named by -passes=a,b,c in that order, timing each one and counting the instructions it removes
+//   - a pass that declares itself function-local is run over slices of the functions on several threads,
+//     each slice with its own instance of the pass (-pass-threads=<n>, default one per processor)
+//   - -verify-passes validates the program after every pass, so a pass that breaks it is named in the error
+//   - the per-pass report goes to stderr; the times are also PhaseMetrics phases named "pass:<name>"
+public class PassManager {
+    public static final String OPTION = "-passes=";
+    public static final String VERIFY_OPTION = "-verify-passes";
+    public static final String THREADS_OPTION = "-pass-threads=";
+
+    public static class Pass {
+        public final String name;
+        public final Supplier<DepthFirst> factory;
+        public final boolean function_local;    // reads and rewrites only the function it visits
+
+        Pass(String name, Supplier<DepthFirst> factory, boolean function_local) {
+            this.name = name;
+            this.factory = factory;
+            this.function_local = function_local;
+        }
+    }
+
+    static class PassStats {
+        int runs;
+        long wall_nanos;
+        long instructions_before;
+        long instructions_after;
+        boolean parallel;
+    }
+
+    static final LinkedHashMap<String, Pass> REGISTRY = new LinkedHashMap<>();
+    static {
+        register("spill-elim", SpillReloadEliminationVisitor::new, true);
+        register("dce", DeadCodeEliminationVisitor::new, true);
+        register("flat-dce", () -> new DeadCodeEliminationVisitor(true), true);
+        register("check-elim", CheckEliminationVisitor::new, true);
+    }
+
+    public static synchronized void register(String name, Supplier<DepthFirst> factory, boolean function_local) {
+        REGISTRY.put(name, new Pass(name, factory, function_local));
+    }
+
+    List<Pass> passes;
+    boolean verify;
+    int threads;
+    PhaseMetrics metrics;
+    LinkedHashMap<String, PassStats> stats;
+
+    // one instance of every pass and of its verifier, reused function after function when streaming
+    List<DepthFirst> function_passes;
+    List<ValidatorVisitor> function_verifiers;
+
+    public PassManager(List<Pass> passes, boolean verify, int threads, PhaseMetrics metrics) {
+        this.passes = new ArrayList<>(passes);
+        this.verify = verify;
+        this.threads = Math.max(threads, 1);
+        this.metrics = metrics;
+        this.stats = new LinkedHashMap<>();
+        for (Pass pass : passes) stats.put(pass.name, new PassStats());
+    }
+
+    // null when no -passes= option was given; an unknown pass name is an IllegalArgumentException
+    public static PassManager from_options(List<String> options, PhaseMetrics metrics) {
+        String names = get_option_value(options, OPTION);
+        if (names == null) return null;
+
+        List<Pass> passes = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (name.isEmpty()) continue;
+            Pass pass;
+            synchronized (PassManager.class) {
+                pass = REGISTRY.get(name);
+            }
+            if (pass == null) throw new IllegalArgumentException("Unknown pass " + name + ", expected one of " + String.join(", ", REGISTRY.keySet()));
+            passes.add(pass);
+        }
+
+        String threads = get_option_value(options, THREADS_OPTION);
+        int thread_count = threads != null ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+        return new PassManager(passes, options.contains(VERIFY_OPTION), thread_count, metrics);
+    }
+
+    static String get_option_value(List<String> options, String name) {
+        for (String option : options) {
+            if (option.startsWith(name)) return option.substring(name.length());
+        }
+        return null;
+    }
+
+    static long count_instructions(List<FunctionDecl> functions) {
+        long count = 0;
+        for (FunctionDecl fd : functions) count += fd.block.instructions.size();
+        return count;
+    }
+
+    @SuppressWarnings("try")
+    public void run(Program program) throws InterruptedException {
+        ExecutorService workers = null;
+        try {
+            for (Pass pass : passes) {
+                PassStats pass_stats = stats.get(pass.name);
+                boolean parallel = pass.function_local && threads > 1 && program.funDecls.size() > 1;
+                if (parallel && workers == null) workers = Executors.newFixedThreadPool(threads, job -> {
+                    Thread worker = new Thread(job, "sv2v-pass");
+                    worker.setDaemon(true);
+                    return worker;
+                });
+
+                long before = count_instructions(program.funDecls);
+                long start = System.nanoTime();
+                try (PhaseMetrics.Timer t = metrics.start("pass:" + pass.name)) {
+                    if (parallel) run_parallel(pass, program.funDecls, workers);
+                    else program.accept(pass.factory.get());
+                }
+                record(pass_stats, System.nanoTime() - start, before, count_instructions(program.funDecls), parallel);
+
+                if (verify) verify_after(pass, () -> program.accept(new ValidatorVisitor()));
+            }
+        } finally {
+            if (workers != null) workers.shutdownNow();
+        }
+    }
+
+    // contiguous slices of the functions, one per worker; the functions are rewritten in place so order is kept
+    void run_parallel(Pass pass, List<FunctionDecl> functions, ExecutorService workers) throws InterruptedException {
+        int slices = Math.min(threads, functions.size());
+        List<Future<?>> jobs = new ArrayList<>();
+        for (int s = 0; s < slices; s++) {
+            List<FunctionDecl> slice = functions.subList(functions.size() * s / slices, functions.size() * (s + 1) / slices);
+            jobs.add(workers.submit(() -> {
+                DepthFirst instance = pass.factory.get();
+                for (FunctionDecl fd : slice) fd.accept(instance);
+            }));
+        }
+        try {
+            for (Future<?> job : jobs) job.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // one function through every pass, for the streaming translators
+    @SuppressWarnings("try")
+    public void run(FunctionDecl fd) {
+        if (function_passes == null) {
+            function_passes = new ArrayList<>();
+            function_verifiers = new ArrayList<>();
+            for (Pass pass : passes) {
+                function_passes.add(pass.factory.get());
+                function_verifiers.add(verify ? new ValidatorVisitor() : null);
+            }
+        }
+        List<FunctionDecl> function = List.of(fd);
+        for (int i = 0; i < passes.size(); i++) {
+            Pass pass = passes.get(i);
+            DepthFirst instance = function_passes.get(i);
+            ValidatorVisitor verifier = function_verifiers.get(i);
+
+            long before = count_instructions(function);
+            long start = System.nanoTime();
+            try (PhaseMetrics.Timer t = metrics.start("pass:" + pass.name)) {
+                fd.accept(instance);
+            }
+            record(stats.get(pass.name), System.nanoTime() - start, before, count_instructions(function), false);
+
+            if (verifier != null) verify_after(pass, () -> fd.accept(verifier));
+        }
+    }
+
+    // the streaming translators take their passes as visitors
+    public DepthFirst as_function_pass() {
+        return new DepthFirst() {
+            public void visit(FunctionDecl n) {
+                run(n);
+            }
+        };
+    }
+
+    void verify_after(Pass pass, Runnable validation) {
+        try {
+            validation.run();
+        } catch (InvalidProgramException e) {
+            System.err.println("Pass manager: invalid program after pass " + pass.name);
+            throw e;
+        }
+    }
+
+    synchronized void record(PassStats pass_stats, long wall, long before, long after, boolean parallel) {
+        pass_stats.runs++;
+        pass_stats.wall_nanos += wall;
+        pass_stats.instructions_before += before;
+        pass_stats.instructions_after += after;
+        pass_stats.parallel |= parallel;
+    }
+
+    // debug
+    public synchronized void print_report() {
+        System.err.println("Pass manager:");
+        for (String name : stats.keySet()) {
+            PassStats pass_stats = stats.get(name);
+            System.err.println("\t" + name + " : " + String.format(Locale.ROOT, "%.3f", pass_stats.wall_nanos / 1e6) + " ms, "
+                + pass_stats.instructions_before + " -> " + pass_stats.instructions_after + " instructions"
+                + (pass_stats.parallel ? " (function-parallel)" : ""));
+        }
+    }
+}
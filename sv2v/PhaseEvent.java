@@ -0,0 +1,17 @@
+package sv2v;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event spanning one run of a compiler phase, committed by PhaseMetrics.Timer
+@Name("sv2v.Phase")
+@Label("SV2V Phase")
+@Category({ "SV2V" })
+@Description("One run of a compiler phase, e.g. parse, frame-layout or translate")
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,158 @@
+package sv2v;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// wall time, cpu time and allocated bytes per compiler phase, plus a few size counters, reported as JSON on stderr
+//   - enabled with -metrics or -Dsv2v.metrics=true; when disabled, start() hands out a shared no-op timer
+//   - a phase may be timed many times (once per function when streaming) and from several threads; runs add up
+//   - cpu time and allocation are per thread, so each timer measures only the thread that started it
+//   - every timed run is also a PhaseEvent for Java Flight Recorder, whether or not metrics are enabled
+public class PhaseMetrics {
+    public static final String PROPERTY = "sv2v.metrics";
+    public static final String OPTION = "-metrics";
+
+    static class Phase {
+        int runs;
+        long wall_nanos;
+        long cpu_nanos;
+        long allocated_bytes;
+    }
+
+    // used as try (PhaseMetrics.Timer t = metrics.start(...)) { ... } with t never referenced, which -Xlint:try
+    // reports; the methods timing their phases this way suppress "try"
+    public class Timer implements AutoCloseable {
+        String phase;
+        PhaseEvent event;
+        long wall_start;
+        long cpu_start;
+        long allocated_start;
+
+        Timer(String phase, PhaseEvent event) {
+            this.phase = phase;
+            this.event = event;
+            if (enabled) {
+                this.cpu_start = cpu_time();
+                this.allocated_start = allocated_bytes();
+                this.wall_start = System.nanoTime();
+            }
+            if (event != null) event.begin();
+        }
+
+        public void close() {
+            if (event != null) {
+                event.phase = phase;
+                event.commit();
+            }
+            if (enabled) {
+                long wall = System.nanoTime() - wall_start;
+                record(phase, wall, cpu_time() - cpu_start, allocated_bytes() - allocated_start);
+            }
+        }
+    }
+
+    static final Timer DISABLED = new PhaseMetrics(false).new Timer(null, null);
+
+    public final boolean enabled;
+    LinkedHashMap<String, Phase> phases;
+    LinkedHashMap<String, Long> counts;
+    ThreadMXBean threads;
+    com.sun.management.ThreadMXBean allocations;   // null if the JVM cannot count allocated bytes
+    long created;
+
+    public PhaseMetrics(boolean enabled) {
+        this.enabled = enabled;
+        phases = new LinkedHashMap<>();
+        counts = new LinkedHashMap<>();
+        created = System.nanoTime();
+        if (!enabled) return;
+
+        threads = ManagementFactory.getThreadMXBean();
+        if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) threads.setThreadCpuTimeEnabled(true);
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+            if (allocations.isThreadAllocatedMemorySupported()) allocations.setThreadAllocatedMemoryEnabled(true);
+            else allocations = null;
+        }
+    }
+
+    public static PhaseMetrics from_options(List<String> options) {
+        return new PhaseMetrics(options.contains(OPTION) || Boolean.getBoolean(PROPERTY));
+    }
+
+    // try (PhaseMetrics.Timer t = metrics.start("parse")) { ... }
+    public Timer start(String phase) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            if (!enabled) return DISABLED;
+            event = null;
+        }
+        return new Timer(phase, event);
+    }
+
+    public synchronized void count(String name, long amount) {
+        if (!enabled) return;
+        counts.merge(name, amount, Long::sum);
+    }
+
+    // adds a chunk of emitted assembly to the line and byte counters
+    public void count_output(String assembly) {
+        if (!enabled) return;
+        long lines = 0;
+        for (int i = 0; i < assembly.length(); i++) {
+            if (assembly.charAt(i) == '\n') lines++;
+        }
+        count("asm_lines", lines);
+        count("asm_bytes", assembly.length());
+    }
+
+    synchronized void record(String name, long wall, long cpu, long allocated) {
+        Phase phase = phases.computeIfAbsent(name, k -> new Phase());
+        phase.runs++;
+        phase.wall_nanos += wall;
+        phase.cpu_nanos += cpu;
+        phase.allocated_bytes += allocated;
+    }
+
+    long cpu_time() {
+        return threads != null && threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    long allocated_bytes() {
+        return allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public synchronized String to_json() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"total_wall_ns\":").append(System.nanoTime() - created);
+        json.append(",\"cpu_time_supported\":").append(threads != null && threads.isCurrentThreadCpuTimeSupported());
+        json.append(",\"allocation_supported\":").append(allocations != null);
+
+        json.append(",\"phases\":[");
+        String separator = "";
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase phase = entry.getValue();
+            json.append(separator).append("{\"name\":\"").append(entry.getKey()).append('"')
+                .append(",\"runs\":").append(phase.runs)
+                .append(",\"wall_ns\":").append(phase.wall_nanos)
+                .append(",\"cpu_ns\":").append(phase.cpu_nanos)
+                .append(",\"allocated_bytes\":").append(phase.allocated_bytes)
+                .append('}');
+            separator = ",";
+        }
+        json.append("],\"counts\":{");
+        separator = "";
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    public void print_report() {
+        if (enabled) System.err.println(to_json());
+    }
+}
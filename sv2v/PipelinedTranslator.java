@@ -0,0 +1,159 @@
+package sv2v;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import IR.direct.DirectParser;
+import IR.direct.SparrowVBuilder;
+import IR.direct.TokenSource;
+import sparrowv.FunctionDecl;
+import sparrowv.Instruction;
+import sparrowv.Program;
+import sparrowv.visitor.CodegenOptions;
+import sparrowv.visitor.DepthFirst;
+import sparrowv.visitor.FrameDataVisitor;
+import sparrowv.visitor.RiscVTranslateVisitor;
+
+// streaming translation split into three stages on their own threads: parse | optimize + frame layout | emit
+//   - stages are connected by bounded queues of per-function work items, so a slow stage holds back the others
+//   - every queue has one producer and one consumer, so functions are written out in input order
+//   - each work item carries its own frame data, nothing mutable is shared between stages
+//   - a failing stage sends its exception downstream in place of more work; run() rethrows it
+//   - functions already emitted stay written when a later one fails, so after a failure out holds partial output
+public class PipelinedTranslator {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    static class WorkItem {
+        FunctionDecl function;          // null marks the end of the input
+        FrameDataVisitor frame_data;
+        Throwable failure;
+
+        WorkItem(FunctionDecl function) { this.function = function; }
+    }
+
+    TokenSource tokens;
+    List<DepthFirst> passes;            // function-local passes, run in order before layout
+    Writer out;
+    int queue_capacity;
+    PhaseMetrics metrics;
+    Writer frame_report;                // written by the layout stage only, may be null
+    CodegenOptions codegen_options;
+
+    public PipelinedTranslator(TokenSource tokens, List<DepthFirst> passes, Writer out, int queue_capacity,
+                               PhaseMetrics metrics, Writer frame_report, CodegenOptions codegen_options) {
+        this.tokens = tokens;
+        this.passes = passes;
+        this.out = out;
+        this.queue_capacity = queue_capacity;
+        this.metrics = metrics;
+        this.frame_report = frame_report;
+        this.codegen_options = codegen_options;
+    }
+
+    public void run() throws Exception {
+        BlockingQueue<WorkItem> parsed = new ArrayBlockingQueue<>(queue_capacity);
+        BlockingQueue<WorkItem> laid_out = new ArrayBlockingQueue<>(queue_capacity);
+
+        Thread parse_stage = start_stage("sv2v-parse", () -> parse(parsed));
+        Thread layout_stage = start_stage("sv2v-layout", () -> lay_out(parsed, laid_out));
+        try {
+            emit(laid_out);
+            parse_stage.join();
+            layout_stage.join();
+        } finally {
+            // only does anything if emitting failed while the other stages were still blocked on a queue
+            parse_stage.interrupt();
+            layout_stage.interrupt();
+        }
+    }
+
+    Thread start_stage(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @SuppressWarnings("try")
+    void parse(BlockingQueue<WorkItem> parsed) {
+        try {
+            try {
+                DirectParser<Program, FunctionDecl, Instruction> parser = new DirectParser<>(tokens, new SparrowVBuilder());
+                while (true) {
+                    FunctionDecl fd;
+                    try (PhaseMetrics.Timer t = metrics.start("direct-parse")) {
+                        fd = parser.NextFunction();
+                    }
+                    if (fd == null) break;
+                    metrics.count("functions", 1);
+                    metrics.count("instructions", fd.block.instructions.size());
+                    parsed.put(new WorkItem(fd));
+                }
+                parsed.put(new WorkItem(null));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Throwable t) {
+                WorkItem failed = new WorkItem(null);
+                failed.failure = t;
+                parsed.put(failed);
+            }
+        } catch (InterruptedException e) {
+            // the emitter gave up, nobody is waiting for more work
+        }
+    }
+
+    @SuppressWarnings("try")
+    void lay_out(BlockingQueue<WorkItem> parsed, BlockingQueue<WorkItem> laid_out) {
+        try {
+            while (true) {
+                WorkItem item = parsed.take();
+                if (item.function != null && item.failure == null) {
+                    try {
+                        try (PhaseMetrics.Timer t = metrics.start("passes")) {
+                            for (DepthFirst pass : passes) item.function.accept(pass);
+                        }
+                        item.frame_data = new FrameDataVisitor(codegen_options);
+                        try (PhaseMetrics.Timer t = metrics.start("frame-layout")) {
+                            item.frame_data.generate_frame_data(item.function);
+                        }
+                        if (frame_report != null) item.frame_data.write_frame_report(frame_report);
+                    } catch (Throwable t) {
+                        item.function = null;
+                        item.failure = t;
+                    }
+                }
+                laid_out.put(item);
+                if (item.function == null) return;
+            }
+        } catch (InterruptedException e) {
+            // the emitter gave up, nobody is waiting for more work
+        }
+    }
+
+    @SuppressWarnings("try")
+    void emit(BlockingQueue<WorkItem> laid_out) throws Exception {
+        RiscVTranslateVisitor rvt = new RiscVTranslateVisitor(codegen_options);
+        write(rvt.program_header());
+
+        while (true) {
+            WorkItem item = laid_out.take();
+            if (item.failure instanceof Exception) throw (Exception) item.failure;
+            if (item.failure instanceof Error) throw (Error) item.failure;
+            if (item.function == null) break;
+
+            String function_translation;
+            try (PhaseMetrics.Timer t = metrics.start("translate")) {
+                function_translation = rvt.translate_function(item.function, item.frame_data);
+            }
+            write(function_translation);
+        }
+        write(rvt.program_footer());
+    }
+
+    void write(String assembly) throws Exception {
+        metrics.count_output(assembly);
+        out.write(assembly);
+    }
+}
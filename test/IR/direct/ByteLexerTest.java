@@ -0,0 +1,74 @@
+package IR.direct;
+
+import IR.ParseException;
+import IR.SparrowParserConstants;
+import testing.Check;
+import testing.Samples;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// ByteLexer must accept exactly the tokens the generated JavaCC lexer accepts
+// both token streams are run over the same input and compared kind by kind and image by image; a lexical error ends
+// a stream, so the two must also fail at the same token
+public class ByteLexerTest {
+
+  static final String[] INPUTS = {
+      "error(\"plain\")\n",
+      "error(\"line\\nbreak\")\n",
+      "error(\"say \\\"hi\\\"\")\n",
+      "error(\"a\\qb\")\n",
+      "error(\"a\\\\b\")\n",
+      "error(\"a\\tb\")\n",
+      "error(\"unterminated)\n",
+      "error(\"unterminated\n\")\n",
+      "error(\"ends in a backslash\\",
+      "func Main()\n  t0 = 5 // comment\nreturn t0\n",
+      "func Main()\n  t0 = 5\nreturn t0 // comment cut off by the end of input",
+      "func Main()\n  t0 = 5\nreturn t0 //\n",
+      "func Main()\n  /* block */ t0 = 5 /* multi\nline */\nreturn t0\n",
+      "func Main()\n  t0 = 5\nreturn t0 /* unterminated",
+      "func Main()\r\n  t0 = 5\r\n\treturn t0\r\n",
+      "t0 = 0123 + 0 - 10",
+      "$a _b c$1 x_y_9 funcs if0x return",
+      "[t0 + 4] = t1 < t2 * t3 @F:",
+      "t0 = t1 # t2",
+      "",
+  };
+
+  public static void main(String[] args) {
+    for (Path sample : Samples.all(".sparrowv")) {
+      compare(sample.getFileName().toString(), Samples.read(sample));
+    }
+    for (String input : INPUTS) {
+      compare(quote(input), input.getBytes(StandardCharsets.US_ASCII));
+    }
+    Check.done("ByteLexerTest");
+  }
+
+  static void compare(String name, byte[] input) {
+    List<String> expected = tokens(new JavaCCTokenSource(new ByteArrayInputStream(input)));
+    List<String> actual = tokens(new ByteLexer(input));
+    Check.equal(expected, actual, "tokens of " + name);
+  }
+
+  // "kind image" per token up to EOF, or up to a lexical error, which is recorded as a last "error" entry
+  static List<String> tokens(TokenSource source) {
+    List<String> tokens = new ArrayList<String>();
+    try {
+      while (source.next() != SparrowParserConstants.EOF) {
+        tokens.add(source.kind() + " " + source.image());
+      }
+    } catch (ParseException e) {
+      tokens.add("error");
+    }
+    return tokens;
+  }
+
+  static String quote(String input) {
+    return "\"" + input.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t") + "\"";
+  }
+}
@@ -0,0 +1,14 @@
+#!/bin/sh
+# compiles the sources and the tests into build/ and runs every *Test class under test/
+#   sh test/run-tests.sh             (from anywhere; exits non-zero if any test failed)
+set -e
+cd "$(dirname "$0")/.."
+rm -rf build
+mkdir -p build
+javac -nowarn -d build $(find . -name '*.java' -not -path './build/*')
+
+status=0
+for test in $(cd test && find . -name '*Test.java' | sed 's|^\./||; s|\.java$||; s|/|.|g' | sort); do
+  java -cp build "$test" || status=1
+done
+exit $status
@@ -0,0 +1,35 @@
+package sparrow.visitor;
+
+import sparrow.Program;
+import testing.Check;
+import testing.Parse;
+import testing.Samples;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// printing a sparrow program and parsing the text back gives the same program
+// compared as text: print, re-parse with SparrowParser, print again
+public class PrintVisitorTest {
+
+  public static void main(String[] args) throws Exception {
+    for (Path sample : Samples.all(".sparrow")) {
+      String name = sample.getFileName().toString();
+      Program program = Parse.sparrow(Samples.read(sample));
+
+      String printed = print(program);
+      Check.equal(printed, program.toString(), "toString() of " + name + " is the PrintVisitor output");
+
+      Program reparsed = Parse.sparrow(printed.getBytes(StandardCharsets.US_ASCII));
+      Check.equal(program.funDecls.size(), reparsed.funDecls.size(), "function count of " + name + " after re-parsing");
+      Check.equal(printed, print(reparsed), "printed " + name + " after re-parsing");
+    }
+    Check.done("sparrow.visitor.PrintVisitorTest");
+  }
+
+  static String print(Program program) throws Exception {
+    StringBuilder out = new StringBuilder();
+    PrintVisitor.print(program, out);
+    return out.toString();
+  }
+}
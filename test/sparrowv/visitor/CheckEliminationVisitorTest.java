@@ -0,0 +1,118 @@
+package sparrowv.visitor;
+
+import sparrowv.Program;
+import testing.Check;
+import testing.Parse;
+import testing.Samples;
+import testing.SparrowVInterpreter;
+
+import java.nio.file.Path;
+
+// CheckEliminationVisitor, followed by dce as in -passes=check-elim,dce: what it removes, what it must keep, and that
+// the program still prints the same with and without them
+public class CheckEliminationVisitorTest {
+
+  // a null check right after alloc, and the bounds check t2 < t3 made a second time
+  static final String REDUNDANT =
+      "func Main()\n"
+      + "  t0 = 8\n"
+      + "  t1 = alloc(t0)\n"
+      + "  if0 t1 goto null\n"
+      + "  t2 = 1\n"
+      + "  t3 = 2\n"
+      + "  t4 = t2 < t3\n"
+      + "  if0 t4 goto oob\n"
+      + "  [t1 + 0] = t2\n"
+      + "  t5 = t2 < t3\n"
+      + "  if0 t5 goto oob\n"
+      + "  [t1 + 4] = t3\n"
+      + "  t0 = [t1 + 4]\n"
+      + "  print(t0)\n"
+      + "  goto end\n"
+      + "null:\n"
+      + "  error(\"null pointer\")\n"
+      + "oob:\n"
+      + "  error(\"array index out of bounds\")\n"
+      + "end:\n"
+      + "  r = t0\n"
+      + "  return r\n";
+
+  // the same checks in Get, on a parameter and with an index from the caller: neither is known, and the second call
+  // does go out of bounds
+  static final String NEEDED =
+      "func Main()\n"
+      + "  t0 = 12\n"
+      + "  t1 = alloc(t0)\n"
+      + "  t2 = 2\n"
+      + "  [t1 + 0] = t2\n"
+      + "  t2 = 7\n"
+      + "  [t1 + 8] = t2\n"
+      + "  t3 = @Get\n"
+      + "  a = t1\n"
+      + "  t4 = 1\n"
+      + "  i = t4\n"
+      + "  t5 = call t3(a i)\n"
+      + "  print(t5)\n"
+      + "  t4 = 5\n"
+      + "  i = t4\n"
+      + "  t3 = @Get\n"
+      + "  t5 = call t3(a i)\n"
+      + "  print(t5)\n"
+      + "  r = t5\n"
+      + "  return r\n"
+      + "\n"
+      + "func Get(a i)\n"
+      + "  t0 = a\n"
+      + "  if0 t0 goto null\n"
+      + "  t1 = [t0 + 0]\n"
+      + "  t2 = i\n"
+      + "  t3 = t2 < t1\n"
+      + "  if0 t3 goto oob\n"
+      + "  t4 = 4\n"
+      + "  t2 = t2 * t4\n"
+      + "  t2 = t2 + t0\n"
+      + "  t2 = [t2 + 4]\n"
+      + "  v = t2\n"
+      + "  goto end\n"
+      + "null:\n"
+      + "  error(\"null pointer\")\n"
+      + "oob:\n"
+      + "  error(\"array index out of bounds\")\n"
+      + "end:\n"
+      + "  return v\n";
+
+  public static void main(String[] args) throws Exception {
+    Program redundant = Parse.sparrowv(REDUNDANT);
+    CheckEliminationVisitor checkElim = new CheckEliminationVisitor();
+    redundant.accept(checkElim);
+    redundant.accept(new DeadCodeEliminationVisitor());
+    String printed = redundant.toString();
+    Check.equal(2, checkElim.func_checks_removed.get("Main"), "checks removed");
+    Check.isTrue(!printed.contains("goto null") && !printed.contains("null pointer"),
+                 "the null check on the allocated pointer and its error block are gone");
+    Check.isTrue(printed.contains("if0 t4 goto oob") && !printed.contains("if0 t5 goto oob"),
+                 "the first bounds check is kept and the repeated one removed");
+    Check.equal(SparrowVInterpreter.run(Parse.sparrowv(REDUNDANT)), SparrowVInterpreter.run(redundant), "output of REDUNDANT");
+
+    Program needed = Parse.sparrowv(NEEDED);
+    checkElim = new CheckEliminationVisitor();
+    needed.accept(checkElim);
+    needed.accept(new DeadCodeEliminationVisitor());
+    printed = needed.toString();
+    Check.equal(0, checkElim.get_total_removed(), "checks removed in NEEDED");
+    Check.isTrue(printed.contains("if0 t0 goto null"), "the null check on a parameter is kept");
+    Check.isTrue(printed.contains("if0 t3 goto oob"), "the bounds check with an unknown index is kept");
+    Check.equal(SparrowVInterpreter.run(Parse.sparrowv(NEEDED)), SparrowVInterpreter.run(needed), "output of NEEDED");
+    Check.equal("error: array index out of bounds", SparrowVInterpreter.run(needed).get(1), "NEEDED goes out of bounds");
+
+    for (Path sample : Samples.all(".sparrowv")) {
+      byte[] text = Samples.read(sample);
+      Program program = Parse.sparrowv(text);
+      program.accept(new CheckEliminationVisitor());
+      program.accept(new DeadCodeEliminationVisitor());
+      Check.equal(SparrowVInterpreter.run(Parse.sparrowv(text)), SparrowVInterpreter.run(program),
+                  "output of " + sample.getFileName());
+    }
+    Check.done("CheckEliminationVisitorTest");
+  }
+}
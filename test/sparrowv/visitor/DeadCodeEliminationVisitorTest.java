@@ -0,0 +1,91 @@
+package sparrowv.visitor;
+
+import sparrowv.Program;
+import testing.Check;
+import testing.Parse;
+import testing.Samples;
+import testing.SparrowVInterpreter;
+
+import java.nio.file.Path;
+
+// DeadCodeEliminationVisitor, plain and with -flat-ir: what it removes, what it must keep, and that the program still
+// prints the same with and without it
+public class DeadCodeEliminationVisitorTest {
+
+  // an unread register write, an unreachable block and a label only that block falls into
+  static final String DEAD =
+      "func Main()\n"
+      + "  t0 = 6\n"
+      + "  t1 = 7\n"
+      + "  t2 = t0 * t1\n"
+      + "  t3 = t2 + t0\n"
+      + "  print(t2)\n"
+      + "  goto end\n"
+      + "  t4 = 99\n"
+      + "  print(t4)\n"
+      + "unused:\n"
+      + "end:\n"
+      + "  x = t2\n"
+      + "  return x\n";
+
+  // writes that are never read in their own function but are seen elsewhere: an s register set right before
+  // returning (callee-saved, so the caller still sees it) and an argument register set right before a call
+  static final String LIVE =
+      "func Main()\n"
+      + "  s1 = 1\n"
+      + "  t0 = @Callee\n"
+      + "  t1 = call t0()\n"
+      + "  print(s1)\n"
+      + "  a2 = 5\n"
+      + "  t0 = @UsesA2\n"
+      + "  t1 = call t0()\n"
+      + "  print(t1)\n"
+      + "  x = t1\n"
+      + "  return x\n"
+      + "\n"
+      + "func Callee()\n"
+      + "  s1 = 7\n"
+      + "  t0 = 0\n"
+      + "  r = t0\n"
+      + "  return r\n"
+      + "\n"
+      + "func UsesA2()\n"
+      + "  t0 = a2\n"
+      + "  r = t0\n"
+      + "  return r\n";
+
+  public static void main(String[] args) throws Exception {
+    for (boolean flat : new boolean[] { false, true }) {
+      String pass = flat ? "dce -flat-ir" : "dce";
+
+      Program dead = Parse.sparrowv(DEAD);
+      DeadCodeEliminationVisitor dce = new DeadCodeEliminationVisitor(flat);
+      dead.accept(dce);
+      String printed = dead.toString();
+      Check.equal(4, dce.func_eliminated_instructions.get("Main"), pass + " count of removed instructions");
+      Check.isTrue(!printed.contains("t3 = "), pass + " removes the unread write to t3");
+      Check.isTrue(!printed.contains("t4 = 99") && !printed.contains("print(t4)"), pass + " removes the unreachable block");
+      Check.isTrue(!printed.contains("unused:"), pass + " removes the label nothing jumps to");
+      Check.isTrue(printed.contains("end:"), pass + " keeps the label goto jumps to");
+      Check.equal(SparrowVInterpreter.run(Parse.sparrowv(DEAD)), SparrowVInterpreter.run(dead), pass + " output of DEAD");
+
+      Program live = Parse.sparrowv(LIVE);
+      dce = new DeadCodeEliminationVisitor(flat);
+      live.accept(dce);
+      printed = live.toString();
+      Check.equal(0, dce.get_total_eliminated(), pass + " count of removed instructions in LIVE");
+      Check.isTrue(printed.contains("s1 = 7"), pass + " keeps the s1 write before return");
+      Check.isTrue(printed.contains("a2 = 5"), pass + " keeps the a2 write before a call");
+      Check.equal(SparrowVInterpreter.run(Parse.sparrowv(LIVE)), SparrowVInterpreter.run(live), pass + " output of LIVE");
+
+      for (Path sample : Samples.all(".sparrowv")) {
+        byte[] text = Samples.read(sample);
+        Program program = Parse.sparrowv(text);
+        program.accept(new DeadCodeEliminationVisitor(flat));
+        Check.equal(SparrowVInterpreter.run(Parse.sparrowv(text)), SparrowVInterpreter.run(program),
+                    pass + " output of " + sample.getFileName());
+      }
+    }
+    Check.done("DeadCodeEliminationVisitorTest");
+  }
+}
@@ -0,0 +1,82 @@
+package sparrowv.visitor;
+
+import sparrowv.Program;
+import testing.Check;
+import testing.Parse;
+import testing.Samples;
+import testing.SparrowVInterpreter;
+
+import java.nio.file.Path;
+
+// SpillReloadEliminationVisitor: what it removes, what it must keep, and that the program still prints the same with
+// and without it
+public class SpillReloadEliminationVisitorTest {
+
+  // t1 = x reloads what t0 still holds, t0 = x reloads what t0 already holds; once they are gone nothing reads x or y
+  static final String REDUNDANT =
+      "func Main()\n"
+      + "  t0 = 5\n"
+      + "  x = t0\n"
+      + "  t1 = x\n"
+      + "  t0 = x\n"
+      + "  y = t1\n"
+      + "  t2 = t0 + t1\n"
+      + "  print(t2)\n"
+      + "  r = t2\n"
+      + "  return r\n";
+
+  // t0 = x after the call looks like the first reload above, but the callee overwrites t0; x itself is read by the call
+  static final String NEEDED =
+      "func Main()\n"
+      + "  t0 = 5\n"
+      + "  x = t0\n"
+      + "  t1 = @Clobber\n"
+      + "  t2 = call t1(x)\n"
+      + "  t0 = x\n"
+      + "  print(t0)\n"
+      + "  r = t0\n"
+      + "  return r\n"
+      + "\n"
+      + "func Clobber(v)\n"
+      + "  t0 = v\n"
+      + "  t1 = 94\n"
+      + "  t0 = t0 + t1\n"
+      + "  print(t0)\n"
+      + "  z = t0\n"
+      + "  return z\n";
+
+  public static void main(String[] args) throws Exception {
+    Program redundant = Parse.sparrowv(REDUNDANT);
+    SpillReloadEliminationVisitor spillElim = new SpillReloadEliminationVisitor();
+    redundant.accept(spillElim);
+    String printed = redundant.toString();
+    Check.equal(1, spillElim.func_reloads_replaced.get("Main"), "reloads replaced");
+    Check.equal(1, spillElim.func_reloads_removed.get("Main"), "reloads removed");
+    Check.equal(2, spillElim.func_stores_removed.get("Main"), "stores removed");
+    Check.isTrue(printed.contains("t1 = t0") && !printed.contains("t1 = x"), "t1 = x becomes a register move");
+    Check.isTrue(!printed.contains("t0 = x"), "t0 = x is dropped");
+    Check.isTrue(!printed.contains("x = t0") && !printed.contains("y = t1"), "the stores to x and y are dropped");
+    Check.isTrue(printed.contains("r = t2"), "the store to the returned r is kept");
+    Check.equal(SparrowVInterpreter.run(Parse.sparrowv(REDUNDANT)), SparrowVInterpreter.run(redundant), "output of REDUNDANT");
+
+    Program needed = Parse.sparrowv(NEEDED);
+    spillElim = new SpillReloadEliminationVisitor();
+    needed.accept(spillElim);
+    printed = needed.toString();
+    Check.equal(0, spillElim.get_total(spillElim.func_reloads_replaced) + spillElim.get_total(spillElim.func_reloads_removed),
+                "reloads changed in NEEDED");
+    Check.equal(0, spillElim.get_total(spillElim.func_stores_removed), "stores removed in NEEDED");
+    Check.isTrue(printed.contains("t0 = x"), "the reload after the call is kept");
+    Check.isTrue(printed.contains("x = t0"), "the store read by the call is kept");
+    Check.equal(SparrowVInterpreter.run(Parse.sparrowv(NEEDED)), SparrowVInterpreter.run(needed), "output of NEEDED");
+
+    for (Path sample : Samples.all(".sparrowv")) {
+      byte[] text = Samples.read(sample);
+      Program program = Parse.sparrowv(text);
+      program.accept(new SpillReloadEliminationVisitor());
+      Check.equal(SparrowVInterpreter.run(Parse.sparrowv(text)), SparrowVInterpreter.run(program),
+                  "output of " + sample.getFileName());
+    }
+    Check.done("SpillReloadEliminationVisitorTest");
+  }
+}
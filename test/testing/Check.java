@@ -0,0 +1,35 @@
+package testing;
+
+// minimal assertions for the main()-based tests under test/
+//   - a failed check is printed and counted, the test goes on
+//   - done() prints the tally and exits with 1 if anything failed
+public class Check {
+
+  static int checks = 0;
+  static int failures = 0;
+
+  public static void equal(Object expected, Object actual, String what) {
+    checks++;
+    if (expected == null ? actual != null : !expected.equals(actual)) {
+      failures++;
+      System.out.println("FAIL " + what);
+      System.out.println("  expected: " + expected);
+      System.out.println("  actual:   " + actual);
+    }
+  }
+
+  public static void isTrue(boolean condition, String what) {
+    checks++;
+    if (!condition) {
+      failures++;
+      System.out.println("FAIL " + what);
+    }
+  }
+
+  public static void done(String test) {
+    System.out.println(test + ": " + (checks - failures) + "/" + checks + " checks passed");
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+}
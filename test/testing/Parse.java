@@ -0,0 +1,41 @@
+package testing;
+
+import IR.ParseException;
+import IR.SparrowParser;
+import IR.syntaxtree.Node;
+import IR.visitor.SparrowConstructor;
+import IR.visitor.SparrowVConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+// text to program through the generated parser and the syntax tree constructors, as SV2V does by default
+public class Parse {
+
+  // the generated parser is static, so it is created once and reset for every later input
+  static Node syntaxTree(byte[] text) throws ParseException {
+    ByteArrayInputStream in = new ByteArrayInputStream(text);
+    if (SparrowParser.token_source == null) {
+      new SparrowParser(in);
+    } else {
+      SparrowParser.ReInit(in);
+    }
+    return SparrowParser.Program();
+  }
+
+  public static sparrowv.Program sparrowv(byte[] text) throws ParseException {
+    SparrowVConstructor constructor = new SparrowVConstructor(true);
+    syntaxTree(text).accept(constructor);
+    return constructor.getProgram();
+  }
+
+  public static sparrowv.Program sparrowv(String text) throws ParseException {
+    return sparrowv(text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  public static sparrow.Program sparrow(byte[] text) throws ParseException {
+    SparrowConstructor constructor = new SparrowConstructor();
+    syntaxTree(text).accept(constructor);
+    return constructor.getProgram();
+  }
+}
@@ -0,0 +1,42 @@
+package testing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+// the sample programs in test/samples (or the directory given by -Dsamples=<dir>)
+public class Samples {
+
+  public static Path dir() {
+    return Paths.get(System.getProperty("samples", "test/samples"));
+  }
+
+  // every sample whose name ends in extension, in name order
+  public static List<Path> all(String extension) {
+    List<Path> samples = new ArrayList<Path>();
+    try (Stream<Path> files = Files.list(dir())) {
+      files.filter(p -> p.toString().endsWith(extension)).forEach(samples::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Collections.sort(samples);
+    if (samples.isEmpty()) {
+      throw new IllegalStateException("no *" + extension + " samples in " + dir());
+    }
+    return samples;
+  }
+
+  public static byte[] read(Path sample) {
+    try {
+      return Files.readAllBytes(sample);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package testing;
+
+import IR.token.Identifier;
+import sparrowv.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// runs a sparrowv program and records what it prints, as the reference the optimization passes are checked against
+//   - registers are one register file shared by every call, as on the machine; identifiers are local to a call
+//   - a register never written reads as 0, so does memory that alloc handed out but nothing stored to
+//   - error(...) ends the run; its message is the last line of the output, prefixed with "error: "
+public class SparrowVInterpreter {
+
+  static final int HEAP_START = 0x10000000;
+  static final int FUNCTION_START = 0x400000;
+  static final long MAX_STEPS = 50_000_000;
+  static final long STACK_BYTES = 512L << 20;
+
+  // thrown by error(...) to unwind every active call
+  static class Stop extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Stop(String message) {
+      super(message);
+    }
+  }
+
+  HashMap<String, FunctionDecl> functions = new HashMap<String, FunctionDecl>();
+  List<String> functionNames = new ArrayList<String>();     // a function's address is its index here, offset
+  HashMap<FunctionDecl, HashMap<String, Integer>> labels = new HashMap<FunctionDecl, HashMap<String, Integer>>();
+
+  HashMap<String, Integer> registers = new HashMap<String, Integer>();
+  HashMap<Integer, Integer> memory = new HashMap<Integer, Integer>();
+  int heap = HEAP_START;
+  long steps = 0;
+  List<String> output = new ArrayList<String>();
+
+  public SparrowVInterpreter(Program program) {
+    for (FunctionDecl fd : program.funDecls) {
+      functions.put(fd.functionName.toString(), fd);
+      functionNames.add(fd.functionName.toString());
+    }
+  }
+
+  // the printed lines of running the first function of program
+  // every sparrowv call is a Java call here, so this runs on a thread with a stack deep enough for recursive programs
+  public static List<String> run(Program program) {
+    SparrowVInterpreter interpreter = new SparrowVInterpreter(program);
+    RuntimeException[] failure = new RuntimeException[1];
+    Thread thread = new Thread(null, () -> {
+      try {
+        interpreter.call(program.funDecls.get(0), new ArrayList<Integer>());
+      } catch (Stop e) {
+        interpreter.output.add("error: " + e.getMessage());
+      } catch (RuntimeException e) {
+        failure[0] = e;
+      }
+    }, "sparrowv-interpreter", STACK_BYTES);
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return interpreter.output;
+  }
+
+  int read(Object register) {
+    Integer value = registers.get(register.toString());
+    return value == null ? 0 : value;
+  }
+
+  void write(Object register, int value) {
+    registers.put(register.toString(), value);
+  }
+
+  int call(FunctionDecl fd, List<Integer> args) {
+    HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    for (int a = 0; a < fd.formalParameters.size(); a++) {
+      ids.put(fd.formalParameters.get(a).toString(), args.get(a));
+    }
+    List<Instruction> instructions = fd.block.instructions;
+    HashMap<String, Integer> targets = labelsOf(fd);
+
+    int pc = 0;
+    while (pc < instructions.size()) {
+      if (++steps > MAX_STEPS) {
+        throw new IllegalStateException("no end after " + MAX_STEPS + " instructions");
+      }
+      Instruction instr = instructions.get(pc++);
+      switch (instr.opcode) {
+        case Opcodes.OP_LABEL:
+          break;
+        case Opcodes.OP_MOVE_REG_INTEGER: {
+          Move_Reg_Integer n = (Move_Reg_Integer) instr;
+          write(n.lhs, n.rhs);
+          break;
+        }
+        case Opcodes.OP_MOVE_REG_FUNCNAME: {
+          Move_Reg_FuncName n = (Move_Reg_FuncName) instr;
+          write(n.lhs, FUNCTION_START + functionNames.indexOf(n.rhs.toString()) * 4);
+          break;
+        }
+        case Opcodes.OP_ADD: {
+          Add n = (Add) instr;
+          write(n.lhs, read(n.arg1) + read(n.arg2));
+          break;
+        }
+        case Opcodes.OP_SUBTRACT: {
+          Subtract n = (Subtract) instr;
+          write(n.lhs, read(n.arg1) - read(n.arg2));
+          break;
+        }
+        case Opcodes.OP_MULTIPLY: {
+          Multiply n = (Multiply) instr;
+          write(n.lhs, read(n.arg1) * read(n.arg2));
+          break;
+        }
+        case Opcodes.OP_LESSTHAN: {
+          LessThan n = (LessThan) instr;
+          write(n.lhs, read(n.arg1) < read(n.arg2) ? 1 : 0);
+          break;
+        }
+        case Opcodes.OP_LOAD: {
+          Load n = (Load) instr;
+          write(n.lhs, load(read(n.base) + n.offset));
+          break;
+        }
+        case Opcodes.OP_STORE: {
+          Store n = (Store) instr;
+          store(read(n.base) + n.offset, read(n.rhs));
+          break;
+        }
+        case Opcodes.OP_MOVE_REG_REG: {
+          Move_Reg_Reg n = (Move_Reg_Reg) instr;
+          write(n.lhs, read(n.rhs));
+          break;
+        }
+        case Opcodes.OP_MOVE_ID_REG: {
+          Move_Id_Reg n = (Move_Id_Reg) instr;
+          ids.put(n.lhs.toString(), read(n.rhs));
+          break;
+        }
+        case Opcodes.OP_MOVE_REG_ID: {
+          Move_Reg_Id n = (Move_Reg_Id) instr;
+          write(n.lhs, id(ids, n.rhs, fd));
+          break;
+        }
+        case Opcodes.OP_ALLOC: {
+          Alloc n = (Alloc) instr;
+          write(n.lhs, heap);
+          heap += (read(n.size) + 3) & ~3;
+          break;
+        }
+        case Opcodes.OP_PRINT:
+          output.add(Integer.toString(read(((Print) instr).content)));
+          break;
+        case Opcodes.OP_ERROR: {
+          String msg = ((ErrorMessage) instr).msg;
+          throw new Stop(msg.substring(1, msg.length() - 1));
+        }
+        case Opcodes.OP_GOTO:
+          pc = target(targets, ((Goto) instr).label, fd);
+          break;
+        case Opcodes.OP_IFGOTO: {
+          IfGoto n = (IfGoto) instr;
+          if (read(n.condition) == 0) {
+            pc = target(targets, n.label, fd);
+          }
+          break;
+        }
+        case Opcodes.OP_CALL: {
+          Call n = (Call) instr;
+          int address = read(n.callee);
+          int index = (address - FUNCTION_START) / 4;
+          if (address < FUNCTION_START || index >= functionNames.size() || address % 4 != 0) {
+            throw new IllegalStateException("call to " + address + ", not a function, in " + fd.functionName);
+          }
+          List<Integer> values = new ArrayList<Integer>();
+          for (Identifier arg : n.args) {
+            values.add(id(ids, arg, fd));
+          }
+          write(n.lhs, call(functions.get(functionNames.get(index)), values));
+          break;
+        }
+        default:
+          throw new IllegalStateException("unknown opcode " + instr.opcode);
+      }
+    }
+    return id(ids, fd.block.return_id, fd);
+  }
+
+  HashMap<String, Integer> labelsOf(FunctionDecl fd) {
+    HashMap<String, Integer> targets = labels.get(fd);
+    if (targets == null) {
+      targets = new HashMap<String, Integer>();
+      List<Instruction> instructions = fd.block.instructions;
+      for (int i = 0; i < instructions.size(); i++) {
+        if (instructions.get(i) instanceof LabelInstr) {
+          targets.put(((LabelInstr) instructions.get(i)).label.toString(), i);
+        }
+      }
+      labels.put(fd, targets);
+    }
+    return targets;
+  }
+
+  static int target(HashMap<String, Integer> targets, Object label, FunctionDecl fd) {
+    Integer index = targets.get(label.toString());
+    if (index == null) {
+      throw new IllegalStateException("jump to undefined label " + label + " in " + fd.functionName);
+    }
+    return index;
+  }
+
+  static int id(HashMap<String, Integer> ids, Identifier id, FunctionDecl fd) {
+    Integer value = ids.get(id.toString());
+    if (value == null) {
+      throw new IllegalStateException("read of " + id + " before it is set in " + fd.functionName);
+    }
+    return value;
+  }
+
+  int load(int address) {
+    checkAddress(address);
+    Integer value = memory.get(address);
+    return value == null ? 0 : value;
+  }
+
+  void store(int address, int value) {
+    checkAddress(address);
+    memory.put(address, value);
+  }
+
+  void checkAddress(int address) {
+    if (address < HEAP_START || address >= heap || address % 4 != 0) {
+      throw new IllegalStateException("access to " + address + " outside the allocated heap");
+    }
+  }
+}